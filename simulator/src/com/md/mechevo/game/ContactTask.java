@@ -0,0 +1,51 @@
+package com.md.mechevo.game;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the collisions of a range of elements of the map, splitting it in halves until it is small
+ * enough. The pairs are returned in the order of the elements, so they are the same pairs, in the
+ * same order, as if all the elements had been checked by a single thread.
+ */
+class ContactTask extends RecursiveTask<ArrayList<Solid>> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Ranges smaller than this are not worth splitting.
+	 */
+	static final int THRESHOLD = 64;
+
+	private final Map map;
+	private final int from;
+	private final int to;
+
+	/**
+	 * @param map the map whose elements are checked
+	 * @param from the first element to check
+	 * @param to the element after the last one to check
+	 */
+	ContactTask(Map map, int from, int to) {
+		this.map = map;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected ArrayList<Solid> compute() {
+		if (to - from <= THRESHOLD) {
+			ArrayList<Solid> contacts = new ArrayList<>();
+			map.findContacts(from, to, new ArrayList<Solid>(), contacts);
+			return contacts;
+		}
+
+		int middle = (from + to) >>> 1;
+		ContactTask left = new ContactTask(map, from, middle);
+		ContactTask right = new ContactTask(map, middle, to);
+		left.fork();
+		ArrayList<Solid> rightContacts = right.compute();
+		ArrayList<Solid> contacts = left.join();
+		contacts.addAll(rightContacts);
+		return contacts;
+	}
+}
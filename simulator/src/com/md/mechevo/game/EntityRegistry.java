@@ -0,0 +1,145 @@
+package com.md.mechevo.game;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Keeps the live solids of a state under generational handles. The handle of a removed solid stops
+ * resolving, even after its slot is reused by a newer solid, so holding a handle never keeps a dead
+ * solid around. Solids can also be found by id. Adding, finding and removing are all O(1), and
+ * the memory used only depends on the number of live solids, not on the number of ids handed out.
+ */
+public class EntityRegistry {
+	public static final long INVALID_HANDLE = -1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Solid[] solids;
+
+	/**
+	 * Bumped every time a slot is freed, invalidating the handles that point to it.
+	 */
+	private int[] generations;
+
+	/**
+	 * The live solids by id. Ids are never reused, so they can't index an array that would grow
+	 * with every projectile ever fired.
+	 */
+	private HashMap<Integer, Solid> byId;
+
+	/**
+	 * Slots that were freed and can be reused.
+	 */
+	private int[] freeSlots;
+	private int freeCount;
+
+	/**
+	 * Number of slots ever used.
+	 */
+	private int capacityUsed;
+
+	public EntityRegistry() {
+		this.solids = new Solid[INITIAL_CAPACITY];
+		this.generations = new int[INITIAL_CAPACITY];
+		this.byId = new HashMap<>();
+		this.freeSlots = new int[INITIAL_CAPACITY];
+		this.freeCount = 0;
+		this.capacityUsed = 0;
+	}
+
+	private static long toHandle(int slot, int generation) {
+		return ((long) generation << 32) | slot;
+	}
+
+	private static int slotOf(long handle) {
+		return (int) handle;
+	}
+
+	private static int generationOf(long handle) {
+		return (int) (handle >>> 32);
+	}
+
+	/**
+	 * @return the number of live solids
+	 */
+	public int size() {
+		return capacityUsed - freeCount;
+	}
+
+	/**
+	 * Registers the solid and gives it its handle.
+	 *
+	 * @param s the solid, which must not be registered already
+	 * @return the handle of the solid
+	 * @throws IllegalArgumentException if the id of the solid is negative
+	 */
+	public long add(Solid s) {
+		if (s.getId() < 0) {
+			throw new IllegalArgumentException("Invalid solid id " + s.getId());
+		}
+
+		int slot;
+		if (freeCount > 0) {
+			freeCount -= 1;
+			slot = freeSlots[freeCount];
+		} else {
+			if (capacityUsed == solids.length) {
+				int capacity = solids.length * 2;
+				solids = Arrays.copyOf(solids, capacity);
+				generations = Arrays.copyOf(generations, capacity);
+				freeSlots = Arrays.copyOf(freeSlots, capacity);
+			}
+			slot = capacityUsed;
+			capacityUsed += 1;
+		}
+
+		solids[slot] = s;
+		byId.put(s.getId(), s);
+		long handle = toHandle(slot, generations[slot]);
+		s.setHandle(handle);
+		return handle;
+	}
+
+	/**
+	 * @param handle the handle of a solid
+	 * @return the solid, or null if it has been removed
+	 */
+	public Solid get(long handle) {
+		int slot = slotOf(handle);
+		if (handle == INVALID_HANDLE || slot >= capacityUsed
+				|| generations[slot] != generationOf(handle)) {
+			return null;
+		}
+		return solids[slot];
+	}
+
+	/**
+	 * @param id the id of a solid
+	 * @return the solid, or null if there is no live solid with that id
+	 */
+	public Solid getById(int id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * Unregisters the solid, which loses its handle.
+	 *
+	 * @param s the solid
+	 * @return false if the solid wasn't registered
+	 */
+	public boolean remove(Solid s) {
+		long handle = s.getHandle();
+		if (this.get(handle) != s) {
+			return false;
+		}
+
+		int slot = slotOf(handle);
+		solids[slot] = null;
+		byId.remove(s.getId());
+		generations[slot] += 1;
+		freeSlots[freeCount] = slot;
+		freeCount += 1;
+		s.setHandle(INVALID_HANDLE);
+		return true;
+	}
+}
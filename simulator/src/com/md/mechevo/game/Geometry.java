@@ -0,0 +1,118 @@
+package com.md.mechevo.game;
+
+/**
+ * Vector math on plain coordinates, so no Position objects are created. Distances are compared
+ * squared and directions are compared with dot and cross products; atan2 is only used when an
+ * actual angle is needed.
+ * 
+ * Angles come in degrees in [0, 360), with 0 degrees being the xx axis. The y-axis is inverted
+ * (like in the map), so 90 degrees points to smaller y values.
+ */
+public final class Geometry {
+	private Geometry() {}
+
+	public static double dot(double ax, double ay, double bx, double by) {
+		return ax * bx + ay * by;
+	}
+
+	public static double cross(double ax, double ay, double bx, double by) {
+		return ax * by - ay * bx;
+	}
+
+	public static double lengthSquared(double x, double y) {
+		return x * x + y * y;
+	}
+
+	public static double distanceSquared(double x1, double y1, double x2, double y2) {
+		return Geometry.lengthSquared(x2 - x1, y2 - y1);
+	}
+
+	public static double distanceSquared(Solid s1, Solid s2) {
+		return Geometry.distanceSquared(s1.getX(), s1.getY(), s2.getX(), s2.getY());
+	}
+
+	public static double distance(Solid s1, Solid s2) {
+		return Math.sqrt(Geometry.distanceSquared(s1, s2));
+	}
+
+	/**
+	 * @return true if the centers of both solids are closer than the given distance
+	 */
+	public static boolean isCloserThan(Solid s1, Solid s2, double distance) {
+		return Geometry.distanceSquared(s1, s2) < distance * distance;
+	}
+
+	/**
+	 * Cone test without angles: the vector (x, y) is inside the cone when the cosine of its angle to
+	 * the direction is at least cosHalfAngle. The null vector is always inside.
+	 * 
+	 * @param x the vector, relative to the apex of the cone
+	 * @param y the vector, relative to the apex of the cone
+	 * @param dirX the unit direction of the cone
+	 * @param dirY the unit direction of the cone
+	 * @param cosHalfAngle the cosine of half the aperture of the cone
+	 * @return true if the vector is inside the cone (boundary included)
+	 */
+	public static boolean isInCone(double x, double y, double dirX, double dirY,
+			double cosHalfAngle) {
+		double dot = Geometry.dot(x, y, dirX, dirY);
+		double limit = cosHalfAngle * cosHalfAngle * Geometry.lengthSquared(x, y);
+		if (cosHalfAngle >= 0) {
+			return dot >= 0 && dot * dot >= limit;
+		}
+		return dot >= 0 || dot * dot <= limit;
+	}
+
+	/**
+	 * Classifies many points at once with the cone test, in a single pass over the arrays.
+	 * 
+	 * @param x the apex of the cone
+	 * @param y the apex of the cone
+	 * @param dirX the unit direction of the cone
+	 * @param dirY the unit direction of the cone
+	 * @param cosHalfAngle the cosine of half the aperture of the cone
+	 * @param xs the coordinates of the points
+	 * @param ys the coordinates of the points
+	 * @param count how many points there are in the arrays
+	 * @param distancesSquared where the squared distance from the apex to each point is written
+	 * @param inside where it is written whether each point is inside the cone
+	 * @return the number of points inside the cone
+	 */
+	public static int classifyInCone(double x, double y, double dirX, double dirY,
+			double cosHalfAngle, double[] xs, double[] ys, int count, double[] distancesSquared,
+			boolean[] inside) {
+		int insideCount = 0;
+		for (int i = 0; i < count; i++) {
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			distancesSquared[i] = Geometry.lengthSquared(dx, dy);
+			inside[i] = Geometry.isInCone(dx, dy, dirX, dirY, cosHalfAngle);
+			if (inside[i]) {
+				insideCount += 1;
+			}
+		}
+		return insideCount;
+	}
+
+	/**
+	 * @return the absolute angle of the vector (x, y)
+	 */
+	public static double angleOf(double x, double y) {
+		double angle = Math.toDegrees(Math.atan2(-y, x));
+		return (angle + Solid.FULL_CIRCLE_DEGREES) % Solid.FULL_CIRCLE_DEGREES;
+	}
+
+	/**
+	 * @return the absolute angle of the direction from (x1, y1) to (x2, y2)
+	 */
+	public static double angleTo(double x1, double y1, double x2, double y2) {
+		return Geometry.angleOf(x2 - x1, y2 - y1);
+	}
+
+	/**
+	 * @return the absolute angle of the direction from s1 to s2
+	 */
+	public static double angleTo(Solid s1, Solid s2) {
+		return Geometry.angleTo(s1.getX(), s1.getY(), s2.getX(), s2.getY());
+	}
+}
@@ -0,0 +1,111 @@
+package com.md.mechevo.game;
+
+import java.util.ArrayList;
+
+/**
+ * Tells whether two players can see each other, testing the segment between their centers against
+ * the obstacles it crosses. Visibility is computed from the positions at the beginning of the
+ * round, so it doesn't depend on the order the players are updated in, and each pair of players is
+ * only computed once per round (it's the same in both directions).
+ */
+public class LineOfSight {
+	private final State state;
+
+	/**
+	 * Number of players the matrices have room for.
+	 */
+	private int size;
+
+	/**
+	 * Visibility of each pair of players (by index, the lowest first), and the round it was
+	 * computed in plus one, so 0 means never.
+	 */
+	private boolean[] visible;
+	private int[] computedTick;
+
+	/**
+	 * Reused to hold the obstacles that may cross a segment.
+	 */
+	private ArrayList<Solid> candidates;
+
+	public LineOfSight(State state) {
+		this.state = state;
+		this.size = 0;
+		this.visible = new boolean[0];
+		this.computedTick = new int[0];
+		this.candidates = new ArrayList<>();
+	}
+
+	/**
+	 * @param p1 a player
+	 * @param p2 another player
+	 * @return true if no obstacle was between both players at the beginning of the round
+	 */
+	public boolean isVisible(Player p1, Player p2) {
+		int i = Math.min(p1.getIndex(), p2.getIndex());
+		int j = Math.max(p1.getIndex(), p2.getIndex());
+		if (i < 0) {
+			// not in the state, so it can't be cached
+			return this.isClear(p1.getPreviousX(), p1.getPreviousY(), p2.getPreviousX(),
+					p2.getPreviousY());
+		}
+
+		if (j >= this.size) {
+			this.resize(this.state.getPlayers().size());
+		}
+
+		int pair = i * this.size + j;
+		int tick = this.state.getTick() + 1;
+		if (this.computedTick[pair] != tick) {
+			this.visible[pair] =
+					this.isClear(p1.getPreviousX(), p1.getPreviousY(), p2.getPreviousX(),
+							p2.getPreviousY());
+			this.computedTick[pair] = tick;
+		}
+		return this.visible[pair];
+	}
+
+	/**
+	 * @return true if the segment from (x0, y0) to (x1, y1) doesn't cross any obstacle
+	 */
+	public boolean isClear(double x0, double y0, double x1, double y1) {
+		this.candidates.clear();
+		this.state.getMap().getObstacles().findCandidatesAlong(x0, y0, x1, y1, this.candidates);
+		for (int i = 0; i < this.candidates.size(); i++) {
+			if (LineOfSight.crosses(x0, y0, x1, y1, this.candidates.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the segment from (x0, y0) to (x1, y1) goes inside the solid
+	 */
+	public static boolean crosses(double x0, double y0, double x1, double y1, Solid s) {
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		double toCenterX = s.getX() - x0;
+		double toCenterY = s.getY() - y0;
+
+		// closest point of the segment to the center
+		double lengthSquared = Geometry.lengthSquared(dx, dy);
+		double t = 0;
+		if (lengthSquared > 0) {
+			t = Geometry.dot(toCenterX, toCenterY, dx, dy) / lengthSquared;
+			t = Math.max(0, Math.min(1, t));
+		}
+
+		double distanceSquared = Geometry.lengthSquared(toCenterX - t * dx, toCenterY - t * dy);
+		return distanceSquared < s.getRadius() * s.getRadius();
+	}
+
+	/**
+	 * Makes room for more players, forgetting what was computed.
+	 */
+	private void resize(int size) {
+		this.size = size;
+		this.visible = new boolean[size * size];
+		this.computedTick = new int[size * size];
+	}
+}
@@ -1,6 +1,15 @@
 package com.md.mechevo.game;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.md.mechevo.game.broadphase.Broadphase;
+import com.md.mechevo.game.broadphase.BroadphaseFactory;
+import com.md.mechevo.game.broadphase.SpatialHashGrid;
+import com.md.mechevo.game.broadphase.StaticGrid;
+import com.md.mechevo.game.projectile.Projectile;
 
 public class Map {
 	public static final double MIN_WIDTH = 0;
@@ -8,10 +17,70 @@ public class Map {
 	private double width = 800;
 	private double height = 800;
 
+	/**
+	 * All the moving solids in the map, sorted by id (the order they were created).
+	 */
 	private ArrayList<Solid> elements;
 
+	/**
+	 * The obstacles never move, so they are kept apart from the elements.
+	 */
+	private StaticGrid obstacles;
+
+	/**
+	 * Sleeping solids (see Solid.canSleep) are kept apart from the elements too, sorted by id, and
+	 * indexed like the obstacles until one of them falls asleep or wakes up.
+	 */
+	private ArrayList<Solid> sleeping;
+	private StaticGrid sleepingGrid;
+	private boolean sleepingChanged;
+
+	/**
+	 * Holds the position, radius and angle of all the elements.
+	 */
+	private SolidStore store;
+
+	/**
+	 * Broadphase used to find which elements may be colliding.
+	 */
+	private Broadphase broadphase;
+
+	/**
+	 * Reused on every collision check to hold the candidates of an element.
+	 */
+	private ArrayList<Solid> candidates;
+
+	/**
+	 * Reused on every round to hold the colliding pairs, one solid after the other.
+	 */
+	private ArrayList<Solid> contacts;
+
+	/**
+	 * Pool used to update the independent elements in parallel, or null to update them one by one.
+	 */
+	private ForkJoinPool updatePool;
+
+	/**
+	 * Whether independent elements are being updated in parallel right now, when nothing can be
+	 * spawned.
+	 */
+	private boolean updatingInParallel;
+
 	public Map(double width, double height) {
+		this(width, height, BroadphaseFactory.createBroadphase(BroadphaseFactory.DEFAULT));
+	}
+
+	public Map(double width, double height, Broadphase broadphase) {
 		this.elements = new ArrayList<>();
+		this.broadphase = broadphase;
+		this.obstacles = new StaticGrid(new ArrayList<Obstacle>());
+		this.sleeping = new ArrayList<>();
+		this.sleepingGrid = new StaticGrid(this.sleeping);
+		this.sleepingChanged = false;
+		this.store = new SolidStore();
+		this.candidates = new ArrayList<>();
+		this.contacts = new ArrayList<>();
+		this.updatingInParallel = false;
 		this.width = width;
 		this.height = height;
 	}
@@ -24,51 +93,207 @@ public class Map {
 		return height;
 	}
 
+	public Broadphase getBroadphase() {
+		return broadphase;
+	}
+
+	public ForkJoinPool getUpdatePool() {
+		return updatePool;
+	}
+
+	/**
+	 * The result of an update is the same with or without a pool, only faster with many
+	 * projectiles.
+	 * 
+	 * @param updatePool the pool used to update the independent elements in parallel, or null to
+	 *        update all the elements one by one
+	 */
+	public void setUpdatePool(ForkJoinPool updatePool) {
+		this.updatePool = updatePool;
+	}
+
+	/**
+	 * @return true while independent elements are being updated in parallel
+	 */
+	boolean isUpdatingInParallel() {
+		return updatingInParallel;
+	}
+
 	public ArrayList<Solid> getElements() {
 		return elements;
 	}
 
+	public SolidStore getStore() {
+		return store;
+	}
+
 	public void addSolid(Solid s) {
 		elements.add(s);
+		s.attach(this.store);
+	}
+
+	/**
+	 * @return the sleeping solids, which are not in the elements
+	 */
+	public List<Solid> getSleeping() {
+		return Collections.unmodifiableList(sleeping);
+	}
+
+	/**
+	 * Stops updating the solid and takes it out of the broadphase and of the store, so it's
+	 * skipped by every loop over the elements.
+	 */
+	private void sleep(Solid s) {
+		this.broadphase.remove(s);
+		s.detach();
+		// it stays still while sleeping
+		s.setPreviousPosition(s.getPosition());
+		s.setSleeping(true);
+
+		int index = Collections.binarySearch(this.sleeping, s, SpatialHashGrid.BY_ID);
+		this.sleeping.add(-(index + 1), s);
+		this.sleepingChanged = true;
+	}
+
+	/**
+	 * Puts a sleeping solid back among the elements, in its place by id. It's updated again from
+	 * the next round, and falls asleep again at the end of a round when it can.
+	 * 
+	 * @param s the solid, nothing is done if it's awake
+	 */
+	public void wake(Solid s) {
+		if (!s.isSleeping()) {
+			return;
+		}
+
+		int index = Collections.binarySearch(this.sleeping, s, SpatialHashGrid.BY_ID);
+		this.sleeping.remove(index);
+		this.sleepingChanged = true;
+		s.setSleeping(false);
+
+		index = Collections.binarySearch(this.elements, s, SpatialHashGrid.BY_ID);
+		this.elements.add(-(index + 1), s);
+		s.attach(this.store);
+	}
+
+	public StaticGrid getObstacles() {
+		return obstacles;
 	}
 
 	/**
-	 * Collision done using center position and radius.
+	 * Replaces all the obstacles of the map. The obstacles are moved inside the map and indexed
+	 * once here, so this should only be called while creating the map.
 	 */
-	private void checkAndCorrectBorderCollision(Solid s) {
-		Position pos = s.getPosition();
-		double radius = s.getRadius();
+	public void setObstacles(List<Obstacle> obstacles) {
+		// they never move, so they only need to be moved inside the map once, and they were always
+		// there as far as the swept collisions can tell
+		for (Obstacle o : obstacles) {
+			o.setXY(this.correctBorderX(o.getX(), o.getRadius()),
+					this.correctBorderY(o.getY(), o.getRadius()));
+			o.setPreviousPosition(o.getPosition());
+		}
+		this.obstacles = new StaticGrid(obstacles);
+	}
 
-		if (pos.getX() - radius < MIN_WIDTH) {
+	/**
+	 * Collision done using center position and radius. A solid that is moved back inside the map is
+	 * moved through Solid#setXY, so a player that is clamped tells the AI the world changed.
+	 */
+	private void checkAndCorrectBorderCollision(int slot) {
+		double radius = store.getRadius(slot);
+		double x = this.correctBorderX(store.getX(slot), radius);
+		double y = this.correctBorderY(store.getY(slot), radius);
+		if (x != store.getX(slot) || y != store.getY(slot)) {
+			store.getSolid(slot).setXY(x, y);
+		}
+	}
+
+	/**
+	 * @return the x coordinate of a solid moved back inside the map
+	 */
+	private double correctBorderX(double x, double radius) {
+		if (x - radius < MIN_WIDTH) {
 			// moveForward solid center to left corner
-			s.setPosition(new Position(radius, pos.getY()));
+			x = radius;
 		}
 
-		if (pos.getX() > width) {
+		if (x > width) {
 			// moveForward solid center to right corner
-			s.setPosition(new Position(width - radius, pos.getY()));
+			x = width - radius;
 		}
+		return x;
+	}
 
-		if (pos.getY() < MIN_HEIGHT) {
+	/**
+	 * @return the y coordinate of a solid moved back inside the map
+	 */
+	private double correctBorderY(double y, double radius) {
+		if (y < MIN_HEIGHT) {
 			// moveForward solid center to top corner (hint: inverted y-axis)
-			s.setPosition(new Position(pos.getX(), radius));
+			y = radius;
 		}
 
-		if (pos.getY() > height) {
+		if (y > height) {
 			// moveForward solid center to bottom corner (hint: inverted y-axis)
-			s.setPosition(new Position(pos.getX(), height - radius));
+			y = height - radius;
 		}
+		return y;
 	}
 
 	/**
-	 * Check collision between 2 solids
+	 * Check collision between 2 solids. Projectiles are fast enough to go through a solid in a
+	 * single round, so their whole path during the round is checked.
 	 * 
 	 * @param s1 Solid A
 	 * @param s2 Solid B
 	 * @return True if they collide
 	 */
 	private static boolean checkCollision(Solid s1, Solid s2) {
-		return getDistance(s1.getPosition(), s2.getPosition()) < (s1.getRadius() + s2.getRadius());
+		if (s1 instanceof Projectile || s2 instanceof Projectile) {
+			return getTimeOfImpact(s1, s2) >= 0;
+		}
+		double distX = s1.getX() - s2.getX();
+		double distY = s1.getY() - s2.getY();
+		double radius = s1.getRadius() + s2.getRadius();
+		return distX * distX + distY * distY < radius * radius;
+	}
+
+	/**
+	 * Swept circle test. Both solids are assumed to have moved in a straight line from their
+	 * previous position to the current one.
+	 * 
+	 * @param s1 Solid A
+	 * @param s2 Solid B
+	 * @return the fraction of the round [0, 1] when the solids first touched, or -1 if they never
+	 *         touched during the round.
+	 */
+	public static double getTimeOfImpact(Solid s1, Solid s2) {
+		double radius = s1.getRadius() + s2.getRadius();
+
+		// position of s1 relative to s2 at the beginning and at the end of the round
+		double startX = s1.getPreviousX() - s2.getPreviousX();
+		double startY = s1.getPreviousY() - s2.getPreviousY();
+		double endX = s1.getX() - s2.getX();
+		double endY = s1.getY() - s2.getY();
+
+		// solve |start + t * (end - start)| = radius
+		double dirX = endX - startX;
+		double dirY = endY - startY;
+		double a = dirX * dirX + dirY * dirY;
+		double b = 2 * (startX * dirX + startY * dirY);
+		double c = startX * startX + startY * startY - radius * radius;
+		if (c < 0) {
+			// already touching at the beginning of the round
+			return 0;
+		}
+
+		double discriminant = b * b - 4 * a * c;
+		if (a == 0 || discriminant < 0) {
+			return -1;
+		}
+
+		double t = (-b - Math.sqrt(discriminant)) / (2 * a);
+		return (0 <= t && t <= 1) ? t : -1;
 	}
 
 	/**
@@ -77,50 +302,253 @@ public class Map {
 	 * @return the euclidean distance between the two positions.
 	 */
 	public static double getDistance(Position p1, Position p2) {
-		double distX = p1.getX() - p2.getX();
-		double distY = p1.getY() - p2.getY();
-		return Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
+		return Math.sqrt(Geometry.distanceSquared(p1.getX(), p1.getY(), p2.getX(), p2.getY()));
+	}
+
+	/**
+	 * @param s1 Solid A
+	 * @param s2 Solid B
+	 * @return true if the solids are colliding and at least one of them reacts to it
+	 */
+	private static boolean isContact(Solid s1, Solid s2) {
+		// skip the pairs where nothing would happen before testing the distance
+		return (s1.reactsTo(s2) || s2.reactsTo(s1)) && Map.checkCollision(s1, s2);
+	}
+
+	/**
+	 * @return true if the solid is a projectile that already hit something, so it can't hit
+	 *         anything else
+	 */
+	private static boolean isSpent(Solid s) {
+		return s instanceof Projectile && s.isDestroyed();
+	}
+
+	/**
+	 * Notifies both solids of their collision.
+	 *
+	 * @param state the current state of the map
+	 * @param s1 Solid A
+	 * @param s2 Solid B
+	 */
+	private static void resolveCollision(State state, Solid s1, Solid s2) {
+		if (s2.reactsTo(s1)) {
+			s1.accept(s2, state);
+		}
+		if (s1.reactsTo(s2)) {
+			s2.accept(s1, state);
+		}
+	}
+
+	/**
+	 * Finds the collisions of some of the elements, with the elements that the broadphase couldn't
+	 * discard and with the obstacles. Each pair is only found once. Nothing is changed, so several
+	 * ranges can be searched at the same time.
+	 * 
+	 * A projectile stops at the first solid it hits, so only its earliest collision of the round
+	 * (by time of impact, then in the order of the candidates) is found, from the projectile's own
+	 * element. Sleeping projectiles don't look for collisions, so theirs are found from the other
+	 * solid, like any other sleeping solid.
+	 *
+	 * @param from the first element to check
+	 * @param to the element after the last one to check
+	 * @param candidates where the candidates of each element are kept while checking it
+	 * @param contacts where the colliding pairs are added, one solid after the other, sorted by the
+	 *        ids of the first and then of the second solid (obstacles after the elements)
+	 */
+	void findContacts(int from, int to, ArrayList<Solid> candidates, ArrayList<Solid> contacts) {
+		for (int i = from; i < to; i++) {
+			Solid s = elements.get(i);
+			candidates.clear();
+			this.broadphase.findCandidates(s, candidates);
+			int awake = candidates.size();
+			this.sleepingGrid.findCandidates(s, candidates);
+			if (awake > 0 && candidates.size() > awake) {
+				candidates.sort(SpatialHashGrid.BY_ID);
+			}
+
+			if (s instanceof Projectile) {
+				this.findFirstContact(s, candidates, contacts);
+				continue;
+			}
+
+			for (int j = 0; j < candidates.size(); j++) {
+				Solid other = candidates.get(j);
+				// sleeping solids don't look for collisions, so their pairs are found from here,
+				// and the awake projectiles find their own
+				boolean found =
+						other.isSleeping() || (other.getId() > s.getId()
+								&& !(other instanceof Projectile));
+				if (found && Map.isContact(s, other)) {
+					contacts.add(s);
+					contacts.add(other);
+				}
+			}
+
+			// check collisions with the obstacles
+			candidates.clear();
+			this.obstacles.findCandidates(s, candidates);
+			for (int j = 0; j < candidates.size(); j++) {
+				if (Map.isContact(s, candidates.get(j))) {
+					contacts.add(s);
+					contacts.add(candidates.get(j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the earliest collision of a projectile during the round, with the candidates or with
+	 * the obstacles.
+	 *
+	 * @param p the projectile
+	 * @param candidates the candidates of the projectile, sorted by id (overwritten)
+	 * @param contacts where the colliding pair is added, if there is one
+	 */
+	private void findFirstContact(Solid p, ArrayList<Solid> candidates,
+			ArrayList<Solid> contacts) {
+		Solid first = null;
+		double firstTime = Double.POSITIVE_INFINITY;
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass == 1) {
+				candidates.clear();
+				this.obstacles.findCandidates(p, candidates);
+			}
+
+			for (int j = 0; j < candidates.size(); j++) {
+				Solid other = candidates.get(j);
+				if (p.reactsTo(other) || other.reactsTo(p)) {
+					double time = Map.getTimeOfImpact(p, other);
+					if (time >= 0 && time < firstTime) {
+						first = other;
+						firstTime = time;
+					}
+				}
+			}
+		}
+
+		if (first != null) {
+			contacts.add(p);
+			contacts.add(first);
+		}
+	}
+
+	/**
+	 * Updates the elements in id order, like the sequential update, but each long enough run of
+	 * independent elements is updated in parallel. Spawning stays sequential: independent elements
+	 * never spawn, and the ones that do are updated alone, between the runs.
+	 * 
+	 * @param state the current state of the map
+	 * @param dtime Delta Time since the last state
+	 */
+	private void updateInParallel(State state, double dtime) {
+		int i = 0;
+		while (i < elements.size()) {
+			int end = i;
+			while (end < elements.size() && elements.get(end).updatesIndependently()) {
+				end += 1;
+			}
+
+			if (end - i > UpdateTask.THRESHOLD) {
+				this.updatingInParallel = true;
+				try {
+					this.updatePool.invoke(new UpdateTask(elements, state, dtime, i, end));
+				} finally {
+					this.updatingInParallel = false;
+				}
+			} else {
+				// not worth splitting, or a solid that must be updated alone
+				end = Math.max(end, i + 1);
+				for (int j = i; j < end; j++) {
+					elements.get(j).update(state, dtime);
+				}
+			}
+			i = end;
+		}
 	}
 
 	/**
 	 * Updates all elements in the map and resolves all existing collisions after.
 	 * 
+	 * All the collisions of the round are found first, with the positions after moving, and only
+	 * then resolved in id order. A solid moved while resolving a collision (e.g. a player pushed by
+	 * another one) is not checked again until the next round, so in a chain of overlapping players
+	 * each pair is pushed apart once, and the overlaps the pushes create are resolved in the next
+	 * round.
+	 * 
+	 * This is not what the original loop over all the ordered pairs did: it tested each pair with
+	 * the positions left by the pushes before it, so players pushing each other in chains ended the
+	 * round somewhere else. Only the chains of pushes changed: every broadphase finds the same
+	 * collisions, and the results no longer depend on the order the pairs are visited in.
+	 * 
 	 * @param state the current state of the map
 	 * @param dtime Delta Time since the last state
 	 */
 	public void update(State state, double dtime) {
+		// remember where the elements were before moving
+		this.store.savePreviousPositions();
+
 		// update all elements
-		for (int i = 0; i < elements.size(); i++) {
-			elements.get(i).update(state, dtime);
+		if (this.updatePool == null) {
+			for (int i = 0; i < elements.size(); i++) {
+				elements.get(i).update(state, dtime);
+			}
+		} else {
+			this.updateInParallel(state, dtime);
 		}
 
 		// check collisions with map boundaries
-		for (Solid s : elements) {
-			this.checkAndCorrectBorderCollision(s);
+		for (int slot = 0; slot < this.store.size(); slot++) {
+			this.checkAndCorrectBorderCollision(slot);
 		}
 
-		// check collisions between all elements
-		for (int i = 0; i < elements.size(); i++) {
-			for (int j = 0; j < elements.size(); j++) {
-				if (i == j) {
-					continue;
-				}
+		// find all the collisions first, all of them with the positions after moving
+		this.broadphase.update(elements);
+		if (this.sleepingChanged) {
+			this.sleepingGrid = new StaticGrid(this.sleeping);
+			this.sleepingChanged = false;
+		}
+		ArrayList<Solid> contacts;
+		if (this.updatePool != null && elements.size() > ContactTask.THRESHOLD) {
+			contacts = this.updatePool.invoke(new ContactTask(this, 0, elements.size()));
+		} else {
+			contacts = this.contacts;
+			contacts.clear();
+			this.findContacts(0, elements.size(), this.candidates, contacts);
+		}
 
-				if (this.checkCollision(this.elements.get(i), this.elements.get(j))) {
-					elements.get(i).accept(elements.get(j), state);
-				}
+		// then notify both solids of each collision, always in the same order, waking up the
+		// sleeping ones that reacted (the others would only fall asleep again, and rebuild the
+		// sleeping grid for nothing)
+		for (int i = 0; i < contacts.size(); i += 2) {
+			Solid other = contacts.get(i + 1);
+			if (Map.isSpent(contacts.get(i)) || Map.isSpent(other)) {
+				// e.g. a sleeping mine already set off by another player this round
+				continue;
+			}
+			Map.resolveCollision(state, contacts.get(i), other);
+			if (other.reactsTo(contacts.get(i))) {
+				this.wake(other);
 			}
 		}
 
-		// remove elements that are dead
-		for (int i = 0; i < elements.size();) {
-			if (elements.get(i).isDestroyed()) {
-				elements.get(i).end(state);
-				elements.remove(i);
+		// remove elements that are dead and put to sleep the ones that can, in a single pass that
+		// keeps the rest sorted by id
+		int alive = 0;
+		for (int i = 0; i < elements.size(); i++) {
+			Solid s = elements.get(i);
+			if (s.isDestroyed()) {
+				s.end(state);
+				this.broadphase.remove(s);
+				s.detach();
+				state.solidRemoved(s);
+			} else if (s.canSleep()) {
+				this.sleep(s);
 			} else {
-				i += 1;
+				elements.set(alive, s);
+				alive += 1;
 			}
 		}
+		elements.subList(alive, elements.size()).clear();
 	}
 
 	/**
@@ -132,37 +560,7 @@ public class Map {
 	public static double getAngleToTarget(Solid s1, Solid s2) {
 		// If s2 is null then return the player's angle
 		if (s2 != null) {
-			// rightPoint is a point always 20px to the absolute right of the player
-			double rightPointX = s1.getPosition().getX() + 20;
-			double rightPointY = s1.getPosition().getY();
-
-			double distBA =
-					Math.sqrt(Math.pow((s1.getPosition().getX() - s2.getPosition().getX()), 2)
-							+ (Math.pow((s1.getPosition().getY() - s2.getPosition().getY()), 2)));
-			double distBC =
-					Math.sqrt(Math.pow((s1.getPosition().getX() - rightPointX), 2)
-							+ (Math.pow((s1.getPosition().getY() - rightPointY), 2)));
-			double dotProd =
-					((rightPointX - s1.getPosition().getX())
-							* (s2.getPosition().getX() - s1.getPosition().getX()) + (rightPointY - s1
-							.getPosition().getY())
-							* (s2.getPosition().getY() - s1.getPosition().getY()));
-			double cosValue = (dotProd / (distBA * distBC));
-			double angle = Math.toDegrees(Math.acos(cosValue));
-
-			// Rotate clockwise/counter-clockwise is determined by sign of cross-product
-			double crossProd =
-					((rightPointX - s1.getPosition().getX())
-							* (s2.getPosition().getY() - s1.getPosition().getY()) - (rightPointY - s1
-							.getPosition().getY())
-							* (s2.getPosition().getX() - s1.getPosition().getX()));
-			// Change signal when cross product is positive
-			if (crossProd > 0) {
-				angle *= -1;
-			}
-
-			return (angle + 360) % 360;
-
+			return Geometry.angleTo(s1, s2);
 		} else {
 			return s1.getAngle();
 		}
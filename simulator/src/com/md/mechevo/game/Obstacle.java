@@ -15,8 +15,8 @@ public class Obstacle extends Solid {
 	public void begin(State state) {
 		EventData event =
 				new EventData("createObstacle").addAttribute("id", this.getId())
-						.addAttribute("x", this.getPosition().getX())
-						.addAttribute("y", this.getPosition().getY());
+						.addAttribute("x", this.getX())
+						.addAttribute("y", this.getY());
 		this.notifyEventObserver(event);
 	}
 
@@ -52,6 +52,19 @@ public class Obstacle extends Solid {
 		// Empty on purpose
 	}
 
+	@Override
+	public int getCollisionLayer() {
+		return LAYER_OBSTACLE;
+	}
+
+	/**
+	 * Obstacles don't react to any collision.
+	 */
+	@Override
+	public int getCollisionMask() {
+		return 0;
+	}
+
 	@Override
 	public void accept(CollisionVisitor s, State state) {
 		s.collidesWith(state, this);
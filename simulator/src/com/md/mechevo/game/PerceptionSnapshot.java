@@ -0,0 +1,137 @@
+package com.md.mechevo.game;
+
+/**
+ * What a player sees: the nearest player and the nearest obstacle in its field of view, with
+ * their squared distances and angles. Each of them is looked up in the SpatialQuery the first
+ * time a condition or an action asks for it, and then kept until a new round, or until the owner
+ * moves or turns, so all the conditions and actions of a player share a single lookup. Nothing
+ * else changes while a player is being updated, which is when its AI looks around.
+ */
+public class PerceptionSnapshot {
+	private final Player owner;
+
+	/**
+	 * State, round and owner position and angle the snapshot was taken for.
+	 */
+	private State state;
+	private int tick;
+	private double x;
+	private double y;
+	private double angle;
+
+	private boolean playerFound;
+	private Player nearestPlayer;
+	private double nearestPlayerDistance;
+
+	private boolean obstacleFound;
+	private Obstacle nearestObstacle;
+	private double nearestObstacleDistance;
+
+	public PerceptionSnapshot(Player owner) {
+		this.owner = owner;
+		this.tick = -1;
+	}
+
+	public Player getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return true if nothing the snapshot depends on has changed since it was taken
+	 */
+	public boolean isUpToDate(State state) {
+		return this.state == state && this.tick == state.getTick() && this.x == owner.getX()
+				&& this.y == owner.getY() && this.angle == owner.getAngle();
+	}
+
+	/**
+	 * Forgets what was seen if it's no longer up to date.
+	 */
+	private void refresh(State state) {
+		if (!this.isUpToDate(state)) {
+			this.state = state;
+			this.tick = state.getTick();
+			this.x = owner.getX();
+			this.y = owner.getY();
+			this.angle = owner.getAngle();
+			this.playerFound = false;
+			this.nearestPlayer = null;
+			this.obstacleFound = false;
+			this.nearestObstacle = null;
+		}
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the closest player in view (the lowest id on ties), or null if none is in view
+	 */
+	public Player getNearestPlayer(State state) {
+		this.refresh(state);
+		if (!this.playerFound) {
+			this.nearestPlayer =
+					state.getSpatialQuery().findNearest(owner, SpatialQuery.Filter.PLAYERS_IN_VIEW);
+			this.nearestPlayerDistance =
+					(this.nearestPlayer == null) ? Double.MAX_VALUE : Geometry.distanceSquared(
+							owner, this.nearestPlayer);
+			this.playerFound = true;
+		}
+		return this.nearestPlayer;
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the squared distance to the closest player in view, or Double.MAX_VALUE if none is
+	 *         in view
+	 */
+	public double getNearestPlayerDistanceSquared(State state) {
+		this.getNearestPlayer(state);
+		return this.nearestPlayerDistance;
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the absolute angle to the closest player in view, or the angle of the owner if none
+	 *         is in view
+	 */
+	public double getNearestPlayerAngle(State state) {
+		return Map.getAngleToTarget(owner, this.getNearestPlayer(state));
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the closest obstacle in view (the lowest id on ties), or null if none is in view
+	 */
+	public Obstacle getNearestObstacle(State state) {
+		this.refresh(state);
+		if (!this.obstacleFound) {
+			this.nearestObstacle =
+					state.getSpatialQuery().findNearest(owner,
+							SpatialQuery.Filter.OBSTACLES_IN_VIEW);
+			this.nearestObstacleDistance =
+					(this.nearestObstacle == null) ? Double.MAX_VALUE : Geometry.distanceSquared(
+							owner, this.nearestObstacle);
+			this.obstacleFound = true;
+		}
+		return this.nearestObstacle;
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the squared distance to the closest obstacle in view, or Double.MAX_VALUE if none is
+	 *         in view
+	 */
+	public double getNearestObstacleDistanceSquared(State state) {
+		this.getNearestObstacle(state);
+		return this.nearestObstacleDistance;
+	}
+
+	/**
+	 * @param state the current state of the game
+	 * @return the absolute angle to the closest obstacle in view, or the angle of the owner if none
+	 *         is in view
+	 */
+	public double getNearestObstacleAngle(State state) {
+		return Map.getAngleToTarget(owner, this.getNearestObstacle(state));
+	}
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import com.md.mechevo.game.action.Action;
 import com.md.mechevo.game.ai.AIAlgorithm;
+import com.md.mechevo.game.ai.AIDependency;
 import com.md.mechevo.game.ai.AISuggestion;
 import com.md.mechevo.game.projectile.Projectile;
 import com.md.mechevo.game.sentry.Sentry;
@@ -53,6 +54,28 @@ public class Player extends Solid {
 	 */
 	private AISuggestion currentOrder;
 
+	/**
+	 * Index of this player in the state's players list, or -1 while not in a state.
+	 */
+	private int index = -1;
+
+	/**
+	 * State this player is in, told when it moves or turns, or null while not in a state.
+	 */
+	private State state;
+
+	/**
+	 * What this player sees, shared by all its conditions and actions.
+	 */
+	private PerceptionSnapshot perception;
+
+	/**
+	 * Unit vector of the direction this player is facing, and the angle it was computed for.
+	 */
+	private double headingAngle = Double.NaN;
+	private double headingX;
+	private double headingY;
+
 	/**
 	 * The class constructor. All these parameters are required.
 	 *
@@ -68,22 +91,88 @@ public class Player extends Solid {
 		this.heat = 0;
 		this.weapons = new ArrayList<>();
 		this.sentries = new ArrayList<>();
+		this.perception = new PerceptionSnapshot(this);
 	}
 
 	public static double getMaxHeat() {
 		return MAX_HEAT;
 	}
 
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
+	void setState(State state) {
+		this.state = state;
+	}
+
+	@Override
+	public void setXY(double x, double y) {
+		super.setXY(x, y);
+		this.moved();
+	}
+
+	@Override
+	public void translate(double dx, double dy) {
+		super.translate(dx, dy);
+		this.moved();
+	}
+
+	@Override
+	public void setAngle(double angle) {
+		super.setAngle(angle);
+		this.moved();
+	}
+
+	private void moved() {
+		if (this.state != null) {
+			this.state.worldChanged();
+			this.state.getSpatialQuery().moved(this);
+		}
+	}
+
+	/**
+	 * Tells the AI something it may depend on has changed.
+	 */
+	public void notifyChanged(AIDependency dependency) {
+		if (this.algorithm != null) {
+			this.algorithm.dependencyChanged(dependency);
+		}
+	}
+
 	public AISuggestion getCurrentOrder() {
 		return currentOrder;
 	}
 
+	/**
+	 * Starts executing the suggestion. The suggestion is copied to the player's own order, which is
+	 * allocated once and then reused.
+	 */
+	private void setCurrentOrder(AISuggestion suggestion) {
+		boolean changed =
+				this.currentOrder == null
+						|| this.currentOrder.getAiEntry() != suggestion.getAiEntry()
+						|| this.currentOrder.getPreferredTarget() != suggestion.getPreferredTarget();
+		if (this.currentOrder == null) {
+			this.currentOrder = new AISuggestion();
+		}
+		this.currentOrder.set(suggestion.getAiEntry(), suggestion.getPreferredTarget());
+		if (changed) {
+			this.notifyChanged(AIDependency.ORDER);
+		}
+	}
+
 	public double getLastHitAngle() {
 		return lastHitAngle;
 	}
 
 	public void setLastHitAngle(double lastHitAngle) {
 		this.lastHitAngle = lastHitAngle;
+		this.notifyChanged(AIDependency.HIT);
 	}
 
 	public AIAlgorithm getAlgorithm() {
@@ -91,23 +180,45 @@ public class Player extends Solid {
 	}
 
 	public Position getLeftWeaponPosition() {
-		double angle = 90 - this.getAngle();
-		double vecX = WEAPON_TRANSLATION * Math.cos(Math.toRadians(angle));
-		double vecY = -(WEAPON_TRANSLATION * Math.sin(Math.toRadians(angle)));
-		int posX = (int) (this.getPosition().getX() - vecX);
-		int posY = (int) (this.getPosition().getY() + vecY);
-
-		return new Position(posX, posY);
+		return new Position(this.getWeaponX(Weapon.WeaponSlot.LEFT),
+				this.getWeaponY(Weapon.WeaponSlot.LEFT));
 	}
 
 	public Position getRightWeaponPosition() {
-		double angle = 90 - this.getAngle();
-		double vecX = WEAPON_TRANSLATION * Math.cos(Math.toRadians(angle));
-		double vecY = -(WEAPON_TRANSLATION * Math.sin(Math.toRadians(angle)));
-		int posX = (int) (this.getPosition().getX() + vecX);
-		int posY = (int) (this.getPosition().getY() - vecY);
+		return new Position(this.getWeaponX(Weapon.WeaponSlot.RIGHT),
+				this.getWeaponY(Weapon.WeaponSlot.RIGHT));
+	}
+
+	/**
+	 * @param slot the weapon slot
+	 * @return the x coordinate of the weapon, without creating a Position
+	 */
+	public int getWeaponX(Weapon.WeaponSlot slot) {
+		double vecX = WEAPON_TRANSLATION * Math.cos(Math.toRadians(90 - this.getAngle()));
+		switch (slot) {
+			case LEFT:
+				return (int) (this.getX() - vecX);
+			case RIGHT:
+				return (int) (this.getX() + vecX);
+			default:
+				return (int) this.getX();
+		}
+	}
 
-		return new Position(posX, posY);
+	/**
+	 * @param slot the weapon slot
+	 * @return the y coordinate of the weapon, without creating a Position
+	 */
+	public int getWeaponY(Weapon.WeaponSlot slot) {
+		double vecY = -(WEAPON_TRANSLATION * Math.sin(Math.toRadians(90 - this.getAngle())));
+		switch (slot) {
+			case LEFT:
+				return (int) (this.getY() + vecY);
+			case RIGHT:
+				return (int) (this.getY() - vecY);
+			default:
+				return (int) this.getY();
+		}
 	}
 
 	public int getTeamId() {
@@ -123,17 +234,25 @@ public class Player extends Solid {
 	}
 
 	public void updateHeat(double dtime) {
+		double previousHeat = this.heat;
 		this.heat -= Player.HEAT_RATE * dtime;
 		if (this.heat < 0) {
 			this.heat = 0;
 		}
+		if (this.heat != previousHeat) {
+			this.notifyChanged(AIDependency.HEAT);
+		}
 	}
 
 	public void increaseHeat(double amount) {
+		double previousHeat = this.heat;
 		this.heat += amount;
 		if (this.heat > MAX_HEAT) {
 			this.heat = MAX_HEAT;
 		}
+		if (this.heat != previousHeat) {
+			this.notifyChanged(AIDependency.HEAT);
+		}
 	}
 
 	/**
@@ -180,6 +299,7 @@ public class Player extends Solid {
 	public void equipWeapon(Weapon w, Weapon.WeaponSlot slot) {
 		w.setCurrentSlot(slot);
 		weapons.add(w);
+		this.notifyChanged(AIDependency.WEAPONS);
 	}
 
 	public boolean isParalysed() {
@@ -202,6 +322,19 @@ public class Player extends Solid {
 		return weapons;
 	}
 
+	@Override
+	public int getCollisionLayer() {
+		return LAYER_PLAYER;
+	}
+
+	/**
+	 * Players only react when colliding with other players.
+	 */
+	@Override
+	public int getCollisionMask() {
+		return LAYER_PLAYER;
+	}
+
 	@Override
 	public void accept(CollisionVisitor s, State state) {
 		s.collidesWith(state, this);
@@ -209,16 +342,21 @@ public class Player extends Solid {
 
 	/**
 	 * This method is called then two players collide. Each player moves backwards half the distance needed to
-	 * seperate.
+	 * seperate. The map notifies both players of the same pair, but both are moved by the one with
+	 * the highest id only, so each pair is pushed once.
 	 *
 	 * @param state the current state of the game
 	 * @param p the other player involved in the collision
 	 */
 	@Override
 	public void collidesWith(State state, Player p) {
+		if (this.getId() < p.getId()) {
+			return;
+		}
+
 		// vec is the distance vector
-		double vecX = this.getPosition().getX() - p.getPosition().getX();
-		double vecY = this.getPosition().getY() - p.getPosition().getY();
+		double vecX = this.getX() - p.getX();
+		double vecY = this.getY() - p.getY();
 		double tangentAlfa = vecY / vecX;
 		double angle = Math.atan(tangentAlfa);
 		double dist = Math.sqrt(Math.pow(vecX, 2) + Math.pow(vecY, 2));
@@ -246,35 +384,60 @@ public class Player extends Solid {
 		this.setParalysed(true);
 	}
 
+	/**
+	 * @return the x component of the unit vector this player is facing
+	 */
+	public double getHeadingX() {
+		this.updateHeading();
+		return this.headingX;
+	}
+
+	/**
+	 * @return the y component of the unit vector this player is facing (inverted y-axis)
+	 */
+	public double getHeadingY() {
+		this.updateHeading();
+		return this.headingY;
+	}
+
+	private void updateHeading() {
+		if (this.headingAngle != this.getAngle()) {
+			this.headingAngle = this.getAngle();
+			this.headingX = Math.cos(Math.toRadians(this.headingAngle));
+			this.headingY = -Math.sin(Math.toRadians(this.headingAngle));
+		}
+	}
+
+	/**
+	 * @param s the solid
+	 * @param angle FieldOfViewAngle.FIRE or FieldOfViewAngle.VIEW
+	 * @return true if the center of the solid is in the field of view or in the field of fire
+	 */
+	public boolean isInFieldOfView(Solid s, FieldOfViewAngle angle) {
+		return Geometry.isInCone(s.getX() - this.getX(), s.getY() - this.getY(),
+				this.getHeadingX(), this.getHeadingY(), angle.getCos());
+	}
+
+	/**
+	 * @return what this player sees, looked up at most once per round unless this player moves or
+	 *         turns meanwhile
+	 */
+	public PerceptionSnapshot getPerception() {
+		return perception;
+	}
+
 	/**
 	 * @param state the current state of the game
 	 * @param angle FieldOfViewAngle.FIRE or FieldOfViewAngle.VIEW
 	 * @return all the players that are in the field of view or in the field of fire
 	 */
 	public ArrayList<Player> fieldOfView(State state, FieldOfViewAngle angle) {
-		// A front; B player; C target
 		ArrayList<Player> playersInView = new ArrayList<>();
 		ArrayList<Player> players = state.getPlayers();
 		for (Player p : players){
-			if (this.getId() != p.getId()) {
-				double angleToPlayer = Map.getAngleToTarget(this, p);
-				double[] firstInterval =
-						{this.getAngle() - angle.getAngle(), this.getAngle() + angle.getAngle()};
-				double[] secondInterval = {0, 360};
-				if (firstInterval[0] < 0) {
-					secondInterval[1] = firstInterval[0] + 360;
-					firstInterval[0] = 0;
-				}
-				if (firstInterval[1] > 360) {
-					secondInterval[0] = firstInterval[1] - 360;
-					firstInterval[1] = 360;
-				}
-
-				if ((firstInterval[0] <= angleToPlayer && angleToPlayer <= firstInterval[1])
-						|| (secondInterval[0] >= angleToPlayer)
-						|| (secondInterval[1] <= angleToPlayer)) {
-					playersInView.add(p);
-				}
+			if (this.getId() != p.getId()
+					&& this.isInFieldOfView(p, angle)) {
+				playersInView.add(p);
 			}
 		}
 		return playersInView;
@@ -289,22 +452,7 @@ public class Player extends Solid {
 		ArrayList<Obstacle> obstaclesInView = new ArrayList<>();
 		ArrayList<Obstacle> obstacles = state.getObstacles();
 		for (Obstacle o : obstacles) {
-			double angleToObstacle = Map.getAngleToTarget(this, o);
-			double[] firstInterval =
-					{this.getAngle() - angle.getAngle(), this.getAngle() + angle.getAngle()};
-			double[] secondInterval = {0, 360};
-			if (firstInterval[0] < 0) {
-				secondInterval[1] = firstInterval[0] + 360;
-				firstInterval[0] = 0;
-			}
-			if (firstInterval[1] > 360) {
-				secondInterval[0] = firstInterval[1] - 360;
-				firstInterval[1] = 360;
-			}
-
-			if ((firstInterval[0] <= angleToObstacle && angleToObstacle <= firstInterval[1])
-					|| (secondInterval[0] >= angleToObstacle)
-					|| (secondInterval[1] <= angleToObstacle)) {
+			if (this.isInFieldOfView(o, angle)) {
 				obstaclesInView.add(o);
 			}
 		}
@@ -315,8 +463,8 @@ public class Player extends Solid {
 		EventData event =
 				new EventData("createPlayer").addAttribute("id", this.getId())
 						.addAttribute("teamId", this.getTeamId())
-						.addAttribute("x", this.getPosition().getX())
-						.addAttribute("y", this.getPosition().getY())
+						.addAttribute("x", this.getX())
+						.addAttribute("y", this.getY())
 						.addAttribute("angle", this.getAngle())
 						.addAttribute("color", "")
 						.addAttribute("weaponLeft", this.getWeapons().get(0).getClass().getSimpleName())
@@ -333,25 +481,16 @@ public class Player extends Solid {
 		this.updateHeat(dtime);
 
 		// Update all weapon's cooldown
-		for (Weapon weapon : weapons) {
-			weapon.updateCurrentCooldown(dtime);
+		for (int i = 0; i < weapons.size(); i++) {
+			weapons.get(i).updateCurrentCooldown(dtime);
 		}
 
 		// A player can't move when it's paralysed
 		if (!isParalysed()) {
-
-			// try to cancel the action and find a new one (if no current action or cancelable)
-            AISuggestion suggestion = this.algorithm.calculateBestAction(state);
-			if (this.currentOrder != null && this.currentOrder.getAction(state) != null
-					&& this.currentOrder.getAction(state).isCancelable()
-					&& (!suggestion.getAiEntry().equals(this.currentOrder.getAiEntry()))) {
-				this.currentOrder.getAction(state).end(state);
-				this.currentOrder = suggestion;
-			}
-
-			// choose the suggestion when it's the first one or when there are no more actions to execute
-			if (this.currentOrder == null || this.currentOrder.getAction(state) == null) {
-				this.currentOrder = suggestion;
+			// between decisions the current order goes on, unless there's nothing left of it
+			if (state.isDecisionRound(this) || this.currentOrder == null
+					|| this.currentOrder.getAction(state) == null) {
+				this.decide(state);
 			}
 
 			Action action = this.currentOrder.getAction(state);
@@ -376,6 +515,28 @@ public class Player extends Solid {
 		}
 	}
 
+	/**
+	 * Asks the AI for a suggestion, and switches to it if the current order is done or can be
+	 * canceled.
+	 *
+	 * @param state the current state of the game
+	 */
+	void decide(State state) {
+		// try to cancel the action and find a new one (if no current action or cancelable)
+		AISuggestion suggestion = this.algorithm.calculateBestAction(state);
+		if (this.currentOrder != null && this.currentOrder.getAction(state) != null
+				&& this.currentOrder.getAction(state).isCancelable()
+				&& (!suggestion.getAiEntry().equals(this.currentOrder.getAiEntry()))) {
+			this.currentOrder.getAction(state).end(state);
+			this.setCurrentOrder(suggestion);
+		}
+
+		// choose the suggestion when it's the first one or when there are no more actions to execute
+		if (this.currentOrder == null || this.currentOrder.getAction(state) == null) {
+			this.setCurrentOrder(suggestion);
+		}
+	}
+
 	public void end(State state) {
 		EventData event =
 				new EventData("erasePlayer").addAttribute("id", this.getId());
@@ -387,12 +548,22 @@ public class Player extends Solid {
 
 		private final double angle;
 
+		/**
+		 * Cosine of the angle, for the cone test.
+		 */
+		private final double cos;
+
 		FieldOfViewAngle(double angle) {
 			this.angle = angle;
+			this.cos = Math.cos(Math.toRadians(angle));
 		}
 
-		private double getAngle() {
+		public double getAngle() {
 			return angle;
 		}
+
+		public double getCos() {
+			return cos;
+		}
 	}
 }
@@ -21,12 +21,22 @@ public class Simulator {
 	 * @param state The initial state to begin with
 	 */
 	public static Report runGame(State state) {
-	
+		return Simulator.runGame(state, TIME_BETWEEN_ROUNDS);
+	}
+
+	/**
+	 * Run the game until end with a custom time between rounds. Projectile collisions are swept
+	 * along their path, so bigger steps can be used for batch evaluation without losing hits.
+	 * 
+	 * @param state The initial state to begin with
+	 * @param timeBetweenRounds Time between rounds in seconds
+	 */
+	public static Report runGame(State state, double timeBetweenRounds) {
 		double timeElapsed = 0;
 		// game loop
 		while (!state.gameHasFinished() && timeElapsed < Simulator.TIMELIMIT) {
-			state.update(TIME_BETWEEN_ROUNDS);
-			timeElapsed += TIME_BETWEEN_ROUNDS;
+			state.update(timeBetweenRounds);
+			timeElapsed += timeBetweenRounds;
 		}
 		state.end();
 
@@ -7,35 +7,133 @@ import com.md.mechevo.game.sentry.Sentry;
 public abstract class Solid implements CollisionVisitor, EventObservable {
 	public static final double FULL_CIRCLE_DEGREES = 360;
 	public static final double HALF_CIRCLE_DEGREES = 180;
+
 	/**
-	 * This is the center position.
+	 * Collision layers. Each type of solid belongs to one layer.
 	 */
-	private Position position;
+	public static final int LAYER_PLAYER = 1;
+	public static final int LAYER_PROJECTILE = 1 << 1;
+	public static final int LAYER_OBSTACLE = 1 << 2;
+	public static final int LAYER_SENTRY = 1 << 3;
 
-	private double radius;
+	/**
+	 * Store that holds the center position, the previous position, the radius and the angle of this
+	 * solid while it is in a map, or null while it isn't.
+	 * Angle comes in degrees, with 0 degrees being left xx axis (like in math).
+	 * The previous position is the center position at the beginning of the current round. Used to
+	 * know the path travelled by the solid during the round.
+	 */
+	private SolidStore store;
 
 	/**
-	 * Speed comes in MapUnits per Second
+	 * Slot of this solid in the store.
 	 */
-	private double speed;
+	private int slot;
 
 	/**
-	 * Angle comes in degrees, with 0 degrees being left xx axis (like in math)
+	 * The values of this solid while it has no store, so solids out of a map don't need a store of
+	 * their own.
 	 */
+	private double x;
+	private double y;
+	private double previousX;
+	private double previousY;
+	private double radius;
 	private double angle;
 
+	/**
+	 * Speed comes in MapUnits per Second
+	 */
+	private double speed;
+
 	private boolean destroyed;
 	private int id;
 
+	/**
+	 * Sleeping solids are kept apart by the map until something touches them.
+	 */
+	private boolean sleeping;
+
+	/**
+	 * Handle of this solid in the state's registry, while it is alive.
+	 */
+	private long handle;
+
 	private EventObserver report;
 
 	protected Solid(int id, Position position, double radius, double speed, double angle) {
 		this.id = id;
-		this.position = position;
+		this.store = null;
+		this.slot = -1;
+		this.x = position.getX();
+		this.y = position.getY();
+		this.previousX = position.getX();
+		this.previousY = position.getY();
 		this.radius = radius;
-		this.speed = speed;
 		this.angle = angle;
+		this.speed = speed;
 		this.destroyed = false;
+		this.sleeping = false;
+		this.handle = EntityRegistry.INVALID_HANDLE;
+	}
+
+	/**
+	 * Moves this solid to another store, keeping its values.
+	 *
+	 * @param target the new store
+	 */
+	void attach(SolidStore target) {
+		int newSlot =
+				target.add(this, this.getX(), this.getY(), this.getPreviousX(),
+						this.getPreviousY(), this.getRadius(), this.getAngle());
+		if (this.store != null) {
+			this.store.remove(this.slot);
+		}
+		this.store = target;
+		this.slot = newSlot;
+	}
+
+	/**
+	 * Takes this solid out of its store, e.g. when leaving the map, keeping its values in the
+	 * solid itself. Its values can still be read and changed afterwards.
+	 */
+	void detach() {
+		if (this.store == null) {
+			return;
+		}
+		this.x = this.getX();
+		this.y = this.getY();
+		this.previousX = this.getPreviousX();
+		this.previousY = this.getPreviousY();
+		this.radius = this.getRadius();
+		this.angle = this.getAngle();
+		this.store.remove(this.slot);
+		this.store = null;
+		this.slot = -1;
+	}
+
+	/**
+	 * @return the handle of this solid in the state's registry, or EntityRegistry.INVALID_HANDLE if
+	 *         it isn't registered
+	 */
+	public long getHandle() {
+		return handle;
+	}
+
+	void setHandle(long handle) {
+		this.handle = handle;
+	}
+
+	SolidStore getStore() {
+		return store;
+	}
+
+	int getSlot() {
+		return slot;
+	}
+
+	void setSlot(int slot) {
+		this.slot = slot;
 	}
 
 	public int getId() {
@@ -47,19 +145,27 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 	}
 
 	public double getRadius() {
-		return radius;
+		return (store != null) ? store.getRadius(slot) : radius;
 	}
 
 	public void setRadius(double radius) {
-		this.radius = radius;
+		if (store != null) {
+			store.setRadius(slot, radius);
+		} else {
+			this.radius = radius;
+		}
 	}
 
 	public double getAngle() {
-		return angle;
+		return (store != null) ? store.getAngle(slot) : angle;
 	}
 
 	public void setAngle(double angle) {
-		this.angle = angle % 360f;
+		if (store != null) {
+			store.setAngle(slot, angle % 360f);
+		} else {
+			this.angle = angle % 360f;
+		}
 	}
 
 	public double getSpeed() {
@@ -70,12 +176,70 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 		this.speed = speed;
 	}
 
+	public double getX() {
+		return (store != null) ? store.getX(slot) : x;
+	}
+
+	public double getY() {
+		return (store != null) ? store.getY(slot) : y;
+	}
+
+	public double getPreviousX() {
+		return (store != null) ? store.getPreviousX(slot) : previousX;
+	}
+
+	public double getPreviousY() {
+		return (store != null) ? store.getPreviousY(slot) : previousY;
+	}
+
+	/**
+	 * @return a copy of the current center position
+	 */
 	public Position getPosition() {
-		return position;
+		return new Position(this.getX(), this.getY());
 	}
 
 	public void setPosition(Position position) {
-		this.position = position;
+		this.setXY(position.getX(), position.getY());
+	}
+
+	/**
+	 * Moves the center of the solid to the given coordinates, without creating a Position.
+	 */
+	public void setXY(double x, double y) {
+		this.writeXY(x, y);
+	}
+
+	/**
+	 * Moves the center of the solid by the given amount, without creating a Position.
+	 */
+	public void translate(double dx, double dy) {
+		this.writeXY(this.getX() + dx, this.getY() + dy);
+	}
+
+	private void writeXY(double x, double y) {
+		if (store != null) {
+			store.setXY(slot, x, y);
+		} else {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * @return a copy of the center position at the beginning of the round
+	 */
+	public Position getPreviousPosition() {
+		return new Position(this.getPreviousX(), this.getPreviousY());
+	}
+
+	public void setPreviousPosition(Position previousPosition) {
+		if (store != null) {
+			store.setPreviousXY(slot, previousPosition.getX(), previousPosition.getY());
+		} else {
+			this.previousX = previousPosition.getX();
+			this.previousY = previousPosition.getY();
+		}
 	}
 
 	public boolean isDestroyed() {
@@ -86,6 +250,14 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 		this.destroyed = destroy;
 	}
 
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	void setSleeping(boolean sleeping) {
+		this.sleeping = sleeping;
+	}
+
 	public EventObserver getReport() {
 		return report;
 	}
@@ -99,6 +271,33 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 		return false;
 	}
 
+	/**
+	 * Solids are equal when their ids are, so the id is also the hash.
+	 */
+	@Override
+	public int hashCode() {
+		return this.getId();
+	}
+
+	/**
+	 * @return the collision layer this solid belongs to
+	 */
+	public abstract int getCollisionLayer();
+
+	/**
+	 * @return the collision layers this solid reacts to, meaning the layers whose collidesWith is
+	 *         not empty for this solid.
+	 */
+	public abstract int getCollisionMask();
+
+	/**
+	 * @param s the other solid
+	 * @return true if this solid does something when s collides with it
+	 */
+	public boolean reactsTo(Solid s) {
+		return (this.getCollisionMask() & s.getCollisionLayer()) != 0;
+	}
+
 	/**
 	 * Implements the visitor design pattern to enable new operations on solids.
 	 * 
@@ -123,6 +322,28 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 	 */
 	public abstract void update(State state, double dtime);
 
+	/**
+	 * Solids whose update only changes themselves, and only reads solids that don't update
+	 * independently, can be updated in parallel with each other (see Map.setUpdatePool). They must
+	 * not spawn new solids nor take ids either: spawning is sequential, since ids are handed out in
+	 * update order, and State throws IllegalStateException if it's done in parallel.
+	 * 
+	 * @return true if this solid can be updated at the same time as other independent solids
+	 */
+	public boolean updatesIndependently() {
+		return false;
+	}
+
+	/**
+	 * Solids that don't move and whose update does nothing can sleep: the map stops updating them
+	 * and only checks them against the solids that are awake, until a collision wakes them up.
+	 * 
+	 * @return true if updating this solid has no effect for now
+	 */
+	public boolean canSleep() {
+		return false;
+	}
+
 
 	/**
 	 * Method that is called when a new Solid is destroyed.
@@ -153,11 +374,9 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 		velY = -(velY / vel) * dtime * speed;
 
 		if (forward) {
-			this.setPosition(new Position(this.getPosition().getX() + velX, this.getPosition()
-					.getY() + velY));
+			this.translate(velX, velY);
 		} else {
-			this.setPosition(new Position(this.getPosition().getX() - velX, this.getPosition()
-					.getY() - velY));
+			this.translate(-velX, -velY);
 		}
 	}
 
@@ -173,18 +392,16 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 		double vecY = -(dist * Math.sin(Math.toRadians(angle)));
 
 		if (forward) {
-			this.setPosition(new Position(this.getPosition().getX() + vecX, this.getPosition()
-					.getY() + vecY));
+			this.translate(vecX, vecY);
 		} else {
-			this.setPosition(new Position(this.getPosition().getX() - vecX, this.getPosition()
-					.getY() - vecY));
+			this.translate(-vecX, -vecY);
 		}
 	}
 
 	/**
 	  * @param amount Amount can be positive or negative (relative left or right respectively)
 	 */
-	public void turn(double amount) {
+	public void rotate(double amount) {
 		this.setAngle((this.getAngle() + amount + 360) % 360);
 	}
 
@@ -194,7 +411,9 @@ public abstract class Solid implements CollisionVisitor, EventObservable {
 	 * @return true if this solid contains the pos inside its area, false otherwise.
 	 */
 	public boolean intersectsWith(Position pos) {
-		return Map.getDistance(this.getPosition(), pos) < this.getRadius();
+		double distX = this.getX() - pos.getX();
+		double distY = this.getY() - pos.getY();
+		return distX * distX + distY * distY < this.getRadius() * this.getRadius();
 	}
 
 	// interface CollisionVisitor
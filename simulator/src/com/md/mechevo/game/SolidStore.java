@@ -0,0 +1,149 @@
+package com.md.mechevo.game;
+
+import java.util.Arrays;
+
+/**
+ * Holds the position, radius and angle of many solids in parallel arrays (structure of arrays).
+ * Each solid owns a dense slot in the store. Moving a solid only writes to the arrays, so no
+ * Position objects are created, and loops over all the solids don't need to go through each
+ * Solid object.
+ */
+public final class SolidStore {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Solid[] solids;
+	private double[] x;
+	private double[] y;
+	private double[] previousX;
+	private double[] previousY;
+	private double[] radius;
+	private double[] angle;
+
+	/**
+	 * Number of slots in use. Slots [0, size) are always filled.
+	 */
+	private int size;
+
+	public SolidStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public SolidStore(int capacity) {
+		this.solids = new Solid[capacity];
+		this.x = new double[capacity];
+		this.y = new double[capacity];
+		this.previousX = new double[capacity];
+		this.previousY = new double[capacity];
+		this.radius = new double[capacity];
+		this.angle = new double[capacity];
+		this.size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Solid getSolid(int slot) {
+		return solids[slot];
+	}
+
+	public double getX(int slot) {
+		return x[slot];
+	}
+
+	public double getY(int slot) {
+		return y[slot];
+	}
+
+	public void setXY(int slot, double x, double y) {
+		this.x[slot] = x;
+		this.y[slot] = y;
+	}
+
+	public double getPreviousX(int slot) {
+		return previousX[slot];
+	}
+
+	public double getPreviousY(int slot) {
+		return previousY[slot];
+	}
+
+	public void setPreviousXY(int slot, double x, double y) {
+		this.previousX[slot] = x;
+		this.previousY[slot] = y;
+	}
+
+	public double getRadius(int slot) {
+		return radius[slot];
+	}
+
+	public void setRadius(int slot, double radius) {
+		this.radius[slot] = radius;
+	}
+
+	public double getAngle(int slot) {
+		return angle[slot];
+	}
+
+	public void setAngle(int slot, double angle) {
+		this.angle[slot] = angle;
+	}
+
+	/**
+	 * The current position of every solid becomes its previous position.
+	 */
+	public void savePreviousPositions() {
+		System.arraycopy(this.x, 0, this.previousX, 0, this.size);
+		System.arraycopy(this.y, 0, this.previousY, 0, this.size);
+	}
+
+	/**
+	 * Adds a solid to the store.
+	 *
+	 * @return the slot given to the solid
+	 */
+	int add(Solid s, double x, double y, double previousX, double previousY, double radius,
+			double angle) {
+		if (this.size == this.solids.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, this.size * 2);
+			this.solids = Arrays.copyOf(this.solids, capacity);
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.previousX = Arrays.copyOf(this.previousX, capacity);
+			this.previousY = Arrays.copyOf(this.previousY, capacity);
+			this.radius = Arrays.copyOf(this.radius, capacity);
+			this.angle = Arrays.copyOf(this.angle, capacity);
+		}
+
+		int slot = this.size;
+		this.solids[slot] = s;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.previousX[slot] = previousX;
+		this.previousY[slot] = previousY;
+		this.radius[slot] = radius;
+		this.angle[slot] = angle;
+		this.size += 1;
+		return slot;
+	}
+
+	/**
+	 * Removes the solid in the given slot. The last solid is moved to the empty slot to keep the
+	 * slots dense.
+	 */
+	void remove(int slot) {
+		int last = this.size - 1;
+		if (slot != last) {
+			this.solids[slot] = this.solids[last];
+			this.x[slot] = this.x[last];
+			this.y[slot] = this.y[last];
+			this.previousX[slot] = this.previousX[last];
+			this.previousY[slot] = this.previousY[last];
+			this.radius[slot] = this.radius[last];
+			this.angle[slot] = this.angle[last];
+			this.solids[slot].setSlot(slot);
+		}
+		this.solids[last] = null;
+		this.size = last;
+	}
+}
@@ -0,0 +1,474 @@
+package com.md.mechevo.game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.md.mechevo.game.broadphase.SpatialHashGrid;
+
+/**
+ * Finds the players and the obstacles near a player: the nearest one, the k nearest ones, or all
+ * of them within a radius, optionally only the ones of a type, of a team, or in the field of view
+ * of the player. Distances are measured between the centers.
+ *
+ * The solids are kept in a uniform grid over the map, by their current center. The broadphase
+ * grids can't be used for this: they hold the path of the solids during the last round, and are
+ * only updated once per round, while the players look around in the middle of a round, after
+ * other players already moved. Players are moved to their new cell as soon as they move, so the
+ * queries always see the same positions as a scan of the state would. Solids outside of the map
+ * are kept in the cells of its border.
+ *
+ * Players that left the game are still found, like in State#getPlayers, since the AI still looks
+ * at them. Projectiles are not kept.
+ */
+public class SpatialQuery {
+	/**
+	 * Side of the cells, larger than the ones of the broadphase since the queries usually look
+	 * farther than a collision.
+	 */
+	public static final double CELL_SIZE = 4 * SpatialHashGrid.CELL_SIZE;
+
+	/**
+	 * Which players a query looks for, relative to the player that makes it.
+	 */
+	public enum Team {
+		ANY, ENEMIES, ALLIES
+	}
+
+	/**
+	 * What a query looks for. The player that makes the query is never found.
+	 *
+	 * @param <T> the type of the solids found
+	 */
+	public static final class Filter<T extends Solid> {
+		public static final Filter<Player> PLAYERS_IN_VIEW = new Filter<>(Player.class, Team.ANY,
+				Player.FieldOfViewAngle.VIEW);
+		public static final Filter<Obstacle> OBSTACLES_IN_VIEW = new Filter<>(Obstacle.class,
+				Team.ANY, Player.FieldOfViewAngle.VIEW);
+
+		private final Class<T> type;
+		private final Team team;
+		private final Player.FieldOfViewAngle view;
+		private final boolean players;
+		private final boolean obstacles;
+
+		/**
+		 * @param type only the solids of this type are found (Solid.class for players and
+		 *        obstacles)
+		 * @param team only the players of this team are found, obstacles are only found with
+		 *        Team.ANY
+		 * @param view only the solids in this field of the player are found, or null to look in
+		 *        every direction
+		 */
+		public Filter(Class<T> type, Team team, Player.FieldOfViewAngle view) {
+			this.type = type;
+			this.team = team;
+			this.view = view;
+			this.players = type.isAssignableFrom(Player.class);
+			this.obstacles = type.isAssignableFrom(Obstacle.class) && team == Team.ANY;
+		}
+
+		private boolean accepts(Player viewer, Solid s) {
+			return this.acceptsInAnyDirection(viewer, s)
+					&& (this.view == null || viewer.isInFieldOfView(s, this.view));
+		}
+
+		/**
+		 * Same as accepts, without looking at the field of view.
+		 */
+		private boolean acceptsInAnyDirection(Player viewer, Solid s) {
+			if (s == viewer || !this.type.isInstance(s)) {
+				return false;
+			}
+			if (this.team != Team.ANY) {
+				boolean ally = ((Player) s).getTeamId() == viewer.getTeamId();
+				if (ally != (this.team == Team.ALLIES)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final int columns;
+	private final int rows;
+
+	private final Cells players;
+	private final Cells obstacles;
+
+	/**
+	 * The closest solids found so far by a search, sorted by distance and then by id, with their
+	 * squared distances.
+	 */
+	private Solid[] best;
+	private double[] bestDistances;
+	private int numBest;
+
+	/**
+	 * The solids of the cell being visited that pass the filter, except for the field of view,
+	 * with their centers, so they are all tested against the field of view in a single pass.
+	 */
+	private Solid[] cellSolids;
+	private double[] cellX;
+	private double[] cellY;
+	private double[] cellDistances;
+	private boolean[] cellInside;
+
+	public SpatialQuery(Map map) {
+		this.columns = Math.max(1, (int) Math.ceil(map.getWidth() / CELL_SIZE));
+		this.rows = Math.max(1, (int) Math.ceil(map.getHeight() / CELL_SIZE));
+		this.players = new Cells(this.columns * this.rows);
+		this.obstacles = new Cells(this.columns * this.rows);
+		this.best = new Solid[1];
+		this.bestDistances = new double[1];
+		this.cellSolids = new Solid[8];
+		this.cellX = new double[8];
+		this.cellY = new double[8];
+		this.cellDistances = new double[8];
+		this.cellInside = new boolean[8];
+	}
+
+	/**
+	 * Adds a player, which must be the last one added to the state.
+	 */
+	void add(Player p) {
+		this.players.add(p, this.cellOf(p));
+	}
+
+	void add(Obstacle o) {
+		this.obstacles.add(o, this.cellOf(o));
+	}
+
+	/**
+	 * Moves the player to its cell. Called whenever a player moves.
+	 */
+	void moved(Player p) {
+		if (p.getIndex() >= 0 && p.getIndex() < this.players.size) {
+			this.players.move(p.getIndex(), this.cellOf(p));
+		}
+	}
+
+	/**
+	 * Moves all the players to their cells, for the ones the map moved on its own.
+	 */
+	void update() {
+		for (int i = 0; i < this.players.size; i++) {
+			this.players.move(i, this.cellOf(this.players.solids[i]));
+		}
+	}
+
+	/**
+	 * @param viewer the player that looks
+	 * @param filter what it looks for
+	 * @return the closest solid (the lowest id on ties), or null if there is none
+	 */
+	public <T extends Solid> T findNearest(Player viewer, Filter<T> filter) {
+		this.search(viewer, filter, 1);
+		return (this.numBest == 0) ? null : filter.type.cast(this.best[0]);
+	}
+
+	/**
+	 * @param viewer the player that looks
+	 * @param filter what it looks for
+	 * @param k how many solids to find at most
+	 * @param out where the k closest solids are added, from the closest (the lowest id on ties)
+	 * @return the number of solids added
+	 */
+	public <T extends Solid> int findNearest(Player viewer, Filter<T> filter, int k,
+			List<? super T> out) {
+		this.search(viewer, filter, k);
+		for (int i = 0; i < this.numBest; i++) {
+			out.add(filter.type.cast(this.best[i]));
+		}
+		return this.numBest;
+	}
+
+	/**
+	 * @param viewer the player that looks
+	 * @param filter what it looks for
+	 * @param radius the distance to the viewer
+	 * @param out where the solids closer than radius are added, sorted by id
+	 * @return the number of solids added
+	 */
+	public <T extends Solid> int findWithin(Player viewer, Filter<T> filter, double radius,
+			List<? super T> out) {
+		double x = viewer.getX();
+		double y = viewer.getY();
+		int minX = this.column(x - radius);
+		int maxX = this.column(x + radius);
+		int minY = this.row(y - radius);
+		int maxY = this.row(y + radius);
+
+		int first = out.size();
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				int cell = cy * this.columns + cx;
+				if (filter.players) {
+					this.addWithin(this.players, cell, viewer, filter, radius, out);
+				}
+				if (filter.obstacles) {
+					this.addWithin(this.obstacles, cell, viewer, filter, radius, out);
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Solid> found = (List<Solid>) out.subList(first, out.size());
+		Collections.sort(found, SpatialHashGrid.BY_ID);
+		return found.size();
+	}
+
+	private <T extends Solid> void addWithin(Cells cells, int cell, Player viewer,
+			Filter<T> filter, double radius, List<? super T> out) {
+		for (int i = cells.head[cell]; i >= 0; i = cells.next[i]) {
+			Solid s = cells.solids[i];
+			if (Geometry.distanceSquared(viewer, s) < radius * radius
+					&& filter.accepts(viewer, s)) {
+				out.add(filter.type.cast(s));
+			}
+		}
+	}
+
+	/**
+	 * Finds the k closest solids, visiting the rings of cells around the viewer until every solid
+	 * not visited yet is farther than them.
+	 */
+	private <T extends Solid> void search(Player viewer, Filter<T> filter, int k) {
+		if (k > this.best.length) {
+			this.best = new Solid[k];
+			this.bestDistances = new double[k];
+		}
+		this.numBest = 0;
+		if (k <= 0) {
+			return;
+		}
+
+		double x = viewer.getX();
+		double y = viewer.getY();
+		int centerX = this.column(x);
+		int centerY = this.row(y);
+		for (int ring = 0;; ring++) {
+			int minX = centerX - ring;
+			int maxX = centerX + ring;
+			int minY = centerY - ring;
+			int maxY = centerY + ring;
+
+			// the top and bottom rows of the ring, then the rest of its left and right columns
+			for (int cx = Math.max(minX, 0); cx <= Math.min(maxX, this.columns - 1); cx++) {
+				if (minY >= 0) {
+					this.visit(cx, minY, viewer, filter, k);
+				}
+				if (ring > 0 && maxY < this.rows) {
+					this.visit(cx, maxY, viewer, filter, k);
+				}
+			}
+			for (int cy = Math.max(minY + 1, 0); cy <= Math.min(maxY - 1, this.rows - 1); cy++) {
+				if (minX >= 0) {
+					this.visit(minX, cy, viewer, filter, k);
+				}
+				if (ring > 0 && maxX < this.columns) {
+					this.visit(maxX, cy, viewer, filter, k);
+				}
+			}
+
+			// the solids outside of the ring are at least as far as its closest inner side, except
+			// for the sides on the border of the grid, which have nothing beyond
+			double bound = Double.POSITIVE_INFINITY;
+			if (minX > 0) {
+				bound = Math.min(bound, x - minX * CELL_SIZE);
+			}
+			if (maxX < this.columns - 1) {
+				bound = Math.min(bound, (maxX + 1) * CELL_SIZE - x);
+			}
+			if (minY > 0) {
+				bound = Math.min(bound, y - minY * CELL_SIZE);
+			}
+			if (maxY < this.rows - 1) {
+				bound = Math.min(bound, (maxY + 1) * CELL_SIZE - y);
+			}
+			if (bound == Double.POSITIVE_INFINITY
+					|| (this.numBest == k && this.bestDistances[k - 1] < bound * bound)) {
+				return;
+			}
+		}
+	}
+
+	private <T extends Solid> void visit(int cx, int cy, Player viewer, Filter<T> filter, int k) {
+		int cell = cy * this.columns + cx;
+		if (filter.players) {
+			this.visit(this.players, cell, viewer, filter, k);
+		}
+		if (filter.obstacles) {
+			this.visit(this.obstacles, cell, viewer, filter, k);
+		}
+	}
+
+	private <T extends Solid> void visit(Cells cells, int cell, Player viewer, Filter<T> filter,
+			int k) {
+		if (filter.view != null) {
+			int count = this.classify(cells, cell, viewer, filter);
+			for (int i = 0; i < count; i++) {
+				if (this.cellInside[i]) {
+					this.offer(this.cellSolids[i], this.cellDistances[i], k);
+				}
+			}
+			return;
+		}
+
+		for (int i = cells.head[cell]; i >= 0; i = cells.next[i]) {
+			Solid s = cells.solids[i];
+			if (filter.accepts(viewer, s)) {
+				this.offer(s, Geometry.distanceSquared(viewer, s), k);
+			}
+		}
+	}
+
+	/**
+	 * Gathers the solids of a cell that pass the filter in any direction, and tests all of them
+	 * against its field of view at once.
+	 *
+	 * @return how many solids were gathered in cellSolids, with their squared distances in
+	 *         cellDistances and whether they are in view in cellInside
+	 */
+	private <T extends Solid> int classify(Cells cells, int cell, Player viewer, Filter<T> filter) {
+		int count = 0;
+		for (int i = cells.head[cell]; i >= 0; i = cells.next[i]) {
+			Solid s = cells.solids[i];
+			if (filter.acceptsInAnyDirection(viewer, s)) {
+				if (count == this.cellSolids.length) {
+					int capacity = count * 2;
+					this.cellSolids = Arrays.copyOf(this.cellSolids, capacity);
+					this.cellX = Arrays.copyOf(this.cellX, capacity);
+					this.cellY = Arrays.copyOf(this.cellY, capacity);
+					this.cellDistances = new double[capacity];
+					this.cellInside = new boolean[capacity];
+				}
+				this.cellSolids[count] = s;
+				this.cellX[count] = s.getX();
+				this.cellY[count] = s.getY();
+				count += 1;
+			}
+		}
+
+		Geometry.classifyInCone(viewer.getX(), viewer.getY(), viewer.getHeadingX(),
+				viewer.getHeadingY(), filter.view.getCos(), this.cellX, this.cellY, count,
+				this.cellDistances, this.cellInside);
+		return count;
+	}
+
+	/**
+	 * Keeps the solid among the best ones if it's closer than the farthest of them.
+	 */
+	private void offer(Solid s, double distance, int k) {
+		int i = this.numBest;
+		if (i == k) {
+			if (!isCloser(s, distance, this.best[k - 1], this.bestDistances[k - 1])) {
+				return;
+			}
+			i -= 1;
+		} else {
+			this.numBest += 1;
+		}
+
+		while (i > 0 && isCloser(s, distance, this.best[i - 1], this.bestDistances[i - 1])) {
+			this.best[i] = this.best[i - 1];
+			this.bestDistances[i] = this.bestDistances[i - 1];
+			i -= 1;
+		}
+		this.best[i] = s;
+		this.bestDistances[i] = distance;
+	}
+
+	private static boolean isCloser(Solid s1, double distance1, Solid s2, double distance2) {
+		return distance1 < distance2 || (distance1 == distance2 && s1.getId() < s2.getId());
+	}
+
+	/**
+	 * @return the column of the coordinate, the closest one if it's outside of the map
+	 */
+	private int column(double x) {
+		return Math.min(this.columns - 1, Math.max(0, (int) Math.floor(x / CELL_SIZE)));
+	}
+
+	/**
+	 * @return the row of the coordinate, the closest one if it's outside of the map
+	 */
+	private int row(double y) {
+		return Math.min(this.rows - 1, Math.max(0, (int) Math.floor(y / CELL_SIZE)));
+	}
+
+	private int cellOf(Solid s) {
+		return this.row(s.getY()) * this.columns + this.column(s.getX());
+	}
+
+	/**
+	 * The solids in each cell, as linked lists over arrays, so a solid changes cell without
+	 * allocating.
+	 */
+	private static final class Cells {
+		/**
+		 * First solid of each cell, or -1 if it's empty.
+		 */
+		private final int[] head;
+
+		/**
+		 * The solids, in the order they were added, with their cell and their neighbours in it.
+		 */
+		private Solid[] solids;
+		private int[] cell;
+		private int[] next;
+		private int[] previous;
+		private int size;
+
+		private Cells(int numCells) {
+			this.head = new int[numCells];
+			Arrays.fill(this.head, -1);
+			this.solids = new Solid[0];
+			this.cell = new int[0];
+			this.next = new int[0];
+			this.previous = new int[0];
+			this.size = 0;
+		}
+
+		private void add(Solid s, int cell) {
+			if (this.size == this.solids.length) {
+				int capacity = Math.max(8, this.size * 2);
+				this.solids = Arrays.copyOf(this.solids, capacity);
+				this.cell = Arrays.copyOf(this.cell, capacity);
+				this.next = Arrays.copyOf(this.next, capacity);
+				this.previous = Arrays.copyOf(this.previous, capacity);
+			}
+			this.solids[this.size] = s;
+			this.link(this.size, cell);
+			this.size += 1;
+		}
+
+		private void move(int i, int cell) {
+			if (this.cell[i] != cell) {
+				this.unlink(i);
+				this.link(i, cell);
+			}
+		}
+
+		private void link(int i, int cell) {
+			this.cell[i] = cell;
+			this.previous[i] = -1;
+			this.next[i] = this.head[cell];
+			if (this.head[cell] >= 0) {
+				this.previous[this.head[cell]] = i;
+			}
+			this.head[cell] = i;
+		}
+
+		private void unlink(int i) {
+			if (this.previous[i] >= 0) {
+				this.next[this.previous[i]] = this.next[i];
+			} else {
+				this.head[this.cell[i]] = this.next[i];
+			}
+			if (this.next[i] >= 0) {
+				this.previous[this.next[i]] = this.previous[i];
+			}
+		}
+	}
+}
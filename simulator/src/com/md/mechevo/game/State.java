@@ -1,6 +1,8 @@
 package com.md.mechevo.game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -11,7 +13,6 @@ import com.md.mechevo.game.projectile.Projectile;
  * teams, ...
  */
 public class State implements EventObservable {
-	public static final int NUM_TEAMS = 2;
 	public static final int INVALID_WINNER_TEAM = -1;
 
 	private Map map;
@@ -25,6 +26,31 @@ public class State implements EventObservable {
 
 	private ArrayList<Obstacle> obstacles;
 
+	/**
+	 * All the live solids, under generational handles.
+	 */
+	private EntityRegistry registry;
+
+	private LineOfSight lineOfSight;
+
+	private SpatialQuery spatialQuery;
+
+	/**
+	 * Number of players alive in each team, indexed by team id. There are as many teams as needed
+	 * by the players added.
+	 */
+	private int[] teamAlive;
+
+	/**
+	 * Number of teams with at least one player alive.
+	 */
+	private int aliveTeams;
+
+	/**
+	 * Whether the map removed projectiles during the last update.
+	 */
+	private boolean projectilesRemoved;
+
 	/**
 	 * The id generator.
 	 */
@@ -35,6 +61,21 @@ public class State implements EventObservable {
 	 */
 	private double totalTime;
 
+	/**
+	 * Number of rounds updated so far.
+	 */
+	private int tick;
+
+	/**
+	 * Players decide what to do once every this many rounds, each one in a different round.
+	 */
+	private int decisionInterval;
+
+	/**
+	 * Last round a player moved, turned, joined or left the game in, or -1 if none did.
+	 */
+	private int lastWorldChangeTick;
+
 	/**
 	 * Variable that holds the EventObserver, later will be converted to report
 	 */
@@ -45,28 +86,88 @@ public class State implements EventObservable {
 		this.players = new ArrayList<>();
 		this.projectiles = new ArrayList<>();
 		this.obstacles = new ArrayList<>();
+		this.registry = new EntityRegistry();
+		this.lineOfSight = new LineOfSight(this);
+		this.spatialQuery = new SpatialQuery(map);
+		this.teamAlive = new int[0];
+		this.aliveTeams = 0;
+		this.projectilesRemoved = false;
 		this.totalTime = 0;
+		this.tick = 0;
+		this.lastWorldChangeTick = -1;
+		this.decisionInterval = 1;
 		this.nextId = 0;
 	}
 
+	/**
+	 * Ids are handed out in update order, so they can't be asked for while the map updates
+	 * independent elements in parallel.
+	 */
 	public int getNextId() {
+		this.checkSequential();
 		return nextId++;
 	}
 
+	/**
+	 * Projectiles can only be spawned by the elements the map updates one by one.
+	 */
 	public void addProjectile(Projectile p) {
+		this.checkSequential();
 		this.projectiles.add(p);
+		this.registry.add(p);
 		map.addSolid(p);
 	}
 
+	private void checkSequential() {
+		if (this.map.isUpdatingInParallel()) {
+			throw new IllegalStateException("Solids updated in parallel can't spawn");
+		}
+	}
+
 	public void addPlayer(Player p) {
+		int team = p.getTeamId();
+		if (team >= this.teamAlive.length) {
+			this.teamAlive = Arrays.copyOf(this.teamAlive, team + 1);
+		}
+		if (this.teamAlive[team] == 0) {
+			this.aliveTeams += 1;
+		}
+		this.teamAlive[team] += 1;
+
+		p.setIndex(this.players.size());
+		p.setState(this);
 		this.players.add(p);
+		this.spatialQuery.add(p);
+		this.worldChanged();
+		this.registry.add(p);
 		this.map.addSolid(p);
 	}
 
 
+	/**
+	 * Adds a single obstacle. The obstacles of the map are indexed again, prefer addObstacles.
+	 */
 	public void addObstacle(Obstacle o) {
 		this.obstacles.add(o);
-		this.map.addSolid(o);
+		this.registry.add(o);
+		// the map moves it inside first
+		this.map.setObstacles(this.obstacles);
+		this.spatialQuery.add(o);
+	}
+
+	/**
+	 * Adds all the obstacles at once, indexing them only once.
+	 */
+	public void addObstacles(List<Obstacle> obstacles) {
+		this.obstacles.addAll(obstacles);
+		for (Obstacle o : obstacles) {
+			this.registry.add(o);
+		}
+		// the map moves them inside first
+		this.map.setObstacles(this.obstacles);
+		for (Obstacle o : obstacles) {
+			this.spatialQuery.add(o);
+		}
 	}
 
 	public Map getMap() {
@@ -85,6 +186,71 @@ public class State implements EventObservable {
 		return obstacles;
 	}
 
+	public LineOfSight getLineOfSight() {
+		return lineOfSight;
+	}
+
+	public SpatialQuery getSpatialQuery() {
+		return spatialQuery;
+	}
+
+	public EntityRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @param handle the handle of a solid
+	 * @return the solid, or null if it has been removed since
+	 */
+	public Solid getSolid(long handle) {
+		return this.registry.get(handle);
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getDecisionInterval() {
+		return decisionInterval;
+	}
+
+	/**
+	 * Makes the players decide what to do only once every interval rounds, while their actions are
+	 * still updated every round. The players are spread over the rounds, so each round only a
+	 * fraction of them decides.
+	 *
+	 * @param interval number of rounds between the decisions of a player, 1 to decide every round
+	 */
+	public void setDecisionInterval(int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Invalid decision interval " + interval);
+		}
+		this.decisionInterval = interval;
+	}
+
+	/**
+	 * @param p a player
+	 * @return true if the player decides what to do in this round
+	 */
+	public boolean isDecisionRound(Player p) {
+		return this.decisionInterval == 1 || p.getIndex() < 0
+				|| (this.tick + p.getIndex()) % this.decisionInterval == 0;
+	}
+
+	/**
+	 * @return the last round a player moved, turned, joined or left the game in, or -1 if none did
+	 */
+	public int getLastWorldChangeTick() {
+		return lastWorldChangeTick;
+	}
+
+	/**
+	 * Called when a player moves or turns, so the AI of every player knows the world changed.
+	 */
+	void worldChanged() {
+		this.lastWorldChangeTick = this.tick;
+	}
+
 	public double getTotalTime() {
 		return totalTime;
 	}
@@ -101,48 +267,82 @@ public class State implements EventObservable {
 	public void update(double dtime) {
 		this.report.setCurrentTime(this.totalTime);
 		this.map.update(this, dtime);
+		this.spatialQuery.update();
+		this.removeDestroyed();
 		this.totalTime += dtime;
+		this.tick += 1;
 	}
 
 	/**
-	 * 
-	 * @param id the player id
-	 * @return a player if a player with the id exists in any team, null otherwise
+	 * Called by the map for each destroyed solid it removes. Destroyed players stay in the players
+	 * list, since the AI still looks at them, but lose their handle like every other solid and stop
+	 * counting for their team.
 	 */
-	public Player findPlayerById(int id) {
-		for (Player player : this.players) {
-			if (player.getId() == id) {
-				return player;
+	void solidRemoved(Solid s) {
+		this.registry.remove(s);
+		if (s instanceof Player) {
+			this.worldChanged();
+			int team = ((Player) s).getTeamId();
+			this.teamAlive[team] -= 1;
+			if (this.teamAlive[team] == 0) {
+				this.aliveTeams -= 1;
 			}
+		} else if (s instanceof Projectile) {
+			this.projectilesRemoved = true;
 		}
-
-		return null;
 	}
 
 	/**
-	 * A game has finished when all players for a team are destroyed
-	 * or a set timelimit is passed
+	 * Forgets the projectiles destroyed during the last update, in a single pass.
 	 */
-	public boolean gameHasFinished() {
-		boolean[] teamAlive = new boolean[NUM_TEAMS];
-		for (int i = 0; i < teamAlive.length; i++) {
-			teamAlive[i] = false;
+	private void removeDestroyed() {
+		if (!this.projectilesRemoved) {
+			return;
 		}
+		this.projectilesRemoved = false;
 
-		// Assign to each team if any player of that team is alive
-		for (Player p : this.players) {
+		int alive = 0;
+		for (int i = 0; i < this.projectiles.size(); i++) {
+			Projectile p = this.projectiles.get(i);
 			if (!p.isDestroyed()) {
-				teamAlive[p.getTeamId()] = true;
+				this.projectiles.set(alive, p);
+				alive += 1;
 			}
 		}
+		this.projectiles.subList(alive, this.projectiles.size()).clear();
+	}
 
-		int teamAliveCounter = 0;
-		for (int i = 0; i < teamAlive.length; i++) {
-			if (teamAlive[i]) {
-				teamAliveCounter += 1;
-			}
-		}
-		return teamAliveCounter == 1;
+	/**
+	 * 
+	 * @param id the player id
+	 * @return a player if a live player with the id exists in any team, null otherwise
+	 */
+	public Player findPlayerById(int id) {
+		Solid s = this.registry.getById(id);
+		return (s instanceof Player) ? (Player) s : null;
+	}
+
+	/**
+	 * @param id the solid id
+	 * @return the live solid (of any type) with the id, or null if there is none
+	 */
+	public Solid findSolidById(int id) {
+		return this.registry.getById(id);
+	}
+
+	/**
+	 * @return the number of teams, which is one more than the highest team id of the players
+	 */
+	public int getNumTeams() {
+		return this.teamAlive.length;
+	}
+
+	/**
+	 * A game has finished when only one team has players alive. The time limit is checked by the
+	 * simulator.
+	 */
+	public boolean gameHasFinished() {
+		return this.aliveTeams == 1;
 	}
 
 	/**
@@ -150,9 +350,9 @@ public class State implements EventObservable {
 	 */
 	public int getWinnerTeam() {
 		if (this.gameHasFinished()) {
-			for (Player p : this.players) {
-				if (!p.isDestroyed()) {
-					return p.getTeamId();
+			for (int team = 0; team < this.teamAlive.length; team++) {
+				if (this.teamAlive[team] > 0) {
+					return team;
 				}
 			}
 		}
@@ -0,0 +1,53 @@
+package com.md.mechevo.game;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Updates a range of independent elements, splitting it in halves until it is small enough.
+ * Independent elements don't spawn (see Solid.updatesIndependently), so updating them in any
+ * order gives the same result as updating them one by one.
+ */
+class UpdateTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Ranges smaller than this are not worth splitting.
+	 */
+	static final int THRESHOLD = 64;
+
+	private final List<Solid> elements;
+	private final State state;
+	private final double dtime;
+	private final int from;
+	private final int to;
+
+	/**
+	 * @param elements the elements of the map
+	 * @param state the current state of the map
+	 * @param dtime Delta Time since the last state
+	 * @param from the first element to update
+	 * @param to the element after the last one to update
+	 */
+	UpdateTask(List<Solid> elements, State state, double dtime, int from, int to) {
+		this.elements = elements;
+		this.state = state;
+		this.dtime = dtime;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= THRESHOLD) {
+			for (int i = from; i < to; i++) {
+				elements.get(i).update(state, dtime);
+			}
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		invokeAll(new UpdateTask(elements, state, dtime, from, middle), new UpdateTask(elements,
+				state, dtime, middle, to));
+	}
+}
@@ -3,6 +3,7 @@ package com.md.mechevo.game.action;
 import java.util.ArrayList;
 
 import com.md.mechevo.game.*;
+import com.md.mechevo.game.ai.AIDependency;
 
 
 /**
@@ -90,6 +91,23 @@ public abstract class Action implements EventObservable {
 	 */
 	public abstract boolean check(State state);
 
+	/**
+	 * Check if the action can always be performed, whatever the state, so check doesn't need to be
+	 * called at all.
+	 */
+	public boolean isAlwaysPossible() {
+		return false;
+	}
+
+	/**
+	 * Get what check looks at, so it's only called again when one of them changes.
+	 * 
+	 * @return a mask of AIDependency, everything unless overridden
+	 */
+	public int getDependencies() {
+		return AIDependency.ALL;
+	}
+
 
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import com.md.mechevo.game.EventData;
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 import com.md.mechevo.game.weapon.Weapon;
 
 
@@ -65,14 +66,19 @@ public class Attack extends Action {
 	 */
 	@Override
 	public boolean check(State state) {
-		for (Weapon w : this.weapons) {
-			if (w.getCurrentCooldown() == 0) {
+		for (int i = 0; i < this.weapons.size(); i++) {
+			if (this.weapons.get(i).getCurrentCooldown() == 0) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.WEAPONS.mask();
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import com.md.mechevo.game.EventData;
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 /**
  * Sideways dash. (LEFT or RIGHT)
@@ -58,6 +59,11 @@ public class Dash extends Action {
 		return this.getOwner().getHeat() + this.HEAT_INCREASE < this.getOwner().getMaxHeat();
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.HEAT.mask();
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
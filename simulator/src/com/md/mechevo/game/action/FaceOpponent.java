@@ -1,6 +1,5 @@
 package com.md.mechevo.game.action;
 
-import java.util.ArrayList;
 
 import com.md.mechevo.game.EventData;
 import com.md.mechevo.game.Map;
@@ -38,7 +37,17 @@ public class FaceOpponent extends Action {
 	 */
 	@Override
 	public boolean check(State state) {
-		return (this.getOwner().fieldOfView(state, Player.FieldOfViewAngle.VIEW) != null);
+		return true;
+	}
+
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
+	@Override
+	public boolean isAlwaysPossible() {
+		return true;
 	}
 
 	/**
@@ -53,20 +62,7 @@ public class FaceOpponent extends Action {
 
 		// If no target is preferred, choose the closest one
 		if (target == null) {
-			ArrayList<Player> players = getOwner().fieldOfView(state, Player.FieldOfViewAngle.VIEW);
-			if (!players.isEmpty()) {
-				double nearestDist = Double.MAX_VALUE;
-				double dist;
-				for (Player p : players) {
-					double distX = this.getOwner().getPosition().getX() - p.getPosition().getX();
-					double distY = this.getOwner().getPosition().getY() - p.getPosition().getY();
-					dist = Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
-					if (dist < nearestDist) {
-						nearestDist = dist;
-						target = p;
-					}
-				}
-			}
+			target = this.getOwner().getPerception().getNearestPlayer(state);
 		}
 
 		double angleToTarget = Map.getAngleToTarget(this.getOwner(), target);
@@ -93,10 +89,10 @@ public class FaceOpponent extends Action {
 	public void update(State state, double dtime) {
 		double rotation = Player.ROT_SPEED * dtime;
 		if (turnAmount < rotation) {
-			this.getOwner().turn((this.turnLeft ? turnAmount : -turnAmount));
+			this.getOwner().rotate((this.turnLeft ? turnAmount : -turnAmount));
 			this.turnAmount = 0;
 		} else {
-			this.getOwner().turn(this.turnLeft ? rotation : -rotation);
+			this.getOwner().rotate(this.turnLeft ? rotation : -rotation);
 			this.turnAmount -= rotation;
 		}
 	}
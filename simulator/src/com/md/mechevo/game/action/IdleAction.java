@@ -29,6 +29,16 @@ public class IdleAction extends Action {
 		return true;
 	}
 
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
+	@Override
+	public boolean isAlwaysPossible() {
+		return true;
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -3,9 +3,10 @@ package com.md.mechevo.game.action;
 import java.util.ArrayList;
 
 import com.md.mechevo.game.EventData;
+import com.md.mechevo.game.Geometry;
 import com.md.mechevo.game.Player;
-import com.md.mechevo.game.Position;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 /**
  * Required params: (Move or Sprint), (Forward or Backward), distance
@@ -66,6 +67,11 @@ public class MoveInLine extends Action {
 		return (mode.equals(Mode.MOVE)) || (mode.equals(Mode.SPRINT) && canSprint);
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.HEAT.mask();
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -89,13 +95,14 @@ public class MoveInLine extends Action {
 	@Override
 	public void update(State state, double dtime) {
 		Player owner = this.getOwner();
-		Position oldPos = owner.getPosition();
+		double oldX = owner.getX();
+		double oldY = owner.getY();
 		owner.move(owner.getAngle(), (mode == Mode.MOVE) ? Player.MOVE_SPEED : Player.SPRINT_SPEED,
 				dtime, direction == Direction.FORWARD);
 
-		double distX = owner.getPosition().getX() - oldPos.getX();
-		double distY = owner.getPosition().getY() - oldPos.getY();
-		double distance = Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
+		double distX = owner.getX() - oldX;
+		double distY = owner.getY() - oldY;
+		double distance = Math.sqrt(Geometry.lengthSquared(distX, distY));
 		this.distanceAlreadyMoved += distance;
 
 		if (mode == Mode.SPRINT) {
@@ -46,6 +46,16 @@ public class MoveNearObstacle extends Action {
 		return true;
 	}
 
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
+	@Override
+	public boolean isAlwaysPossible() {
+		return true;
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -54,24 +64,13 @@ public class MoveNearObstacle extends Action {
 	@Override
 	public void begin(State state) {
 		final Player owner = this.getOwner();
-		ArrayList<Obstacle> obstacles =
-				this.getOwner().fieldOfViewObstacles(state, Player.FieldOfViewAngle.VIEW);
-
-		double nearestDist = Double.MAX_VALUE;
-		if (!obstacles.isEmpty()) {
-			double dist;
-			for (Obstacle o : obstacles) {
-				double distX = owner.getPosition().getX() - o.getPosition().getX();
-				double distY = owner.getPosition().getY() - o.getPosition().getY();
-				dist = Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
-				if (dist < nearestDist) {
-					nearestDist = dist;
-					this.setTarget(o);
-				}
-			}
+		Obstacle nearest = owner.getPerception().getNearestObstacle(state);
+		if (nearest != null) {
+			this.setTarget(nearest);
 		}
 
-		final double distToObstacle = nearestDist;
+		final double distToObstacle =
+				Math.sqrt(owner.getPerception().getNearestObstacleDistanceSquared(state));
 		Action firstAction = new Turn(this.getOwner(), new ArrayList<String>() {
 			{
 				add(Double.toString(Map.getAngleToTarget(owner, target)));
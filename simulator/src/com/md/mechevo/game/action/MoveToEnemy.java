@@ -3,9 +3,11 @@ package com.md.mechevo.game.action;
 import java.util.ArrayList;
 
 import com.md.mechevo.game.EventData;
+import com.md.mechevo.game.Geometry;
 import com.md.mechevo.game.Map;
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 /**
  * Move or sprint to the closest enemy.
@@ -58,6 +60,11 @@ public class MoveToEnemy extends Action {
 		return this.getOwner().getCurrentOrder().getPreferredTarget() != null;
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.ORDER.mask();
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -106,8 +113,7 @@ public class MoveToEnemy extends Action {
 		this.notifyEventObserver(eventData, this.getOwner().getReport().getCurrentTime() + (dtime / 2));
 
 		// Move at half the time
-		double distanceToTarget =
-				Map.getDistance(this.getOwner().getPosition(), this.target.getPosition());
+		double distanceToTarget = Geometry.distance(this.getOwner(), this.target);
 		double moveDistance = dtime * this.speed / 2;
 
 		if (distanceToTarget < moveDistance) {
@@ -81,6 +81,16 @@ public class Turn extends Action {
 		return true;
 	}
 
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
+	@Override
+	public boolean isAlwaysPossible() {
+		return true;
+	}
+
 	/**
 	 * Begin the execution of the action. Will be called once at the start of the action.
 	 *
@@ -104,7 +114,7 @@ public class Turn extends Action {
 	public void update(State state, double dtime) {
 		Player owner = this.getOwner();
 		double rotation = (owner.ROT_SPEED * dtime) * ((turnAmount > 0f) ? 1f : -1f);
-		owner.turn(rotation);
+		owner.rotate(rotation);
 		this.setAlreadyTurned(this.getAlreadyTurned() + rotation);
 	}
 
@@ -15,6 +15,27 @@ public final class AIAlgorithm {
 	private Player owner;
 	private ArrayList<AIEntry> entries;
 
+	/**
+	 * The entries compiled, or null if they changed since they were last compiled.
+	 */
+	private AIProgram program;
+
+	/**
+	 * Returned by every call to calculateBestAction, so choosing doesn't allocate.
+	 */
+	private final AISuggestion suggestion;
+
+	/**
+	 * The last choice of the program, the state and round it was made in, and a mask of
+	 * AIDependency that changed since.
+	 */
+	private boolean decided;
+	private AIEntry decidedEntry;
+	private Player decidedTarget;
+	private State decisionState;
+	private int decisionTick;
+	private int changed;
+
 	/**
 	 * Constructor with specified owner.
 	 * 
@@ -23,6 +44,7 @@ public final class AIAlgorithm {
 	public AIAlgorithm(Player owner) {
 		this.owner = owner;
 		this.entries = new ArrayList<>();
+		this.suggestion = new AISuggestion();
 	}
 
 	public Player getOwner() {
@@ -36,6 +58,7 @@ public final class AIAlgorithm {
 	 */
 	public void setOwner(Player owner) {
 		this.owner = owner;
+		this.decided = false;
 		for (AIEntry entry : entries) {
 			for (Condition cond : entry.getConditions()) {
 				cond.setOwner(owner);
@@ -49,20 +72,57 @@ public final class AIAlgorithm {
 
 	public void addEntry(AIEntry entry) {
 		entries.add(entry);
+		program = null;
+		decided = false;
+	}
+
+	/**
+	 * Compiles the entries, so choosing between them is faster. Entries added afterwards undo it, and
+	 * conditions or actions added to an entry need it to be compiled again.
+	 */
+	public void compile() {
+		program = AIProgram.compile(entries);
+		decided = false;
+	}
+
+	public AIProgram getProgram() {
+		return program;
 	}
 
 	/**
 	 * Goes through all AI Entries in order and selects the best Entry. Returns the entry because in
 	 * case of being the same as the last frame the actions will not be reset to the initial action
-	 * again
+	 * again. The same suggestion object is returned every time, so it has to be copied to be kept.
 	 * 
 	 * @param state Current state of the game
 	 * @return The proposed Suggestion
 	 */
 	public AISuggestion calculateBestAction(State state) {
-		for (AIEntry entry : this.entries) {
+		if (program != null) {
+			if (!this.hasToDecide(state)) {
+				if (decidedEntry == null) {
+					return null;
+				}
+				suggestion.set(decidedEntry, decidedTarget);
+				return suggestion;
+			}
+
+			// whatever changes while deciding is seen the next time
+			changed = 0;
+			decisionState = state;
+			decisionTick = state.getTick();
+			AISuggestion chosen = program.run(state, suggestion);
+			decided = true;
+			decidedEntry = (chosen == null) ? null : chosen.getAiEntry();
+			decidedTarget = (chosen == null) ? null : chosen.getPreferredTarget();
+			return chosen;
+		}
+
+		for (int i = 0; i < this.entries.size(); i++) {
+			AIEntry entry = this.entries.get(i);
 			if (entry.checkRequirements(state) && entry.canPerformAnyAction(state)) {
-				return new AISuggestion(entry, entry.findPreferredTarget(state));
+				suggestion.set(entry, entry.findPreferredTarget(state));
+				return suggestion;
 			}
 		}
 		return null;
@@ -70,6 +130,37 @@ public final class AIAlgorithm {
 	}
 
 
+	/**
+	 * Called by the owner when something the conditions or actions may depend on changed.
+	 *
+	 * @param dependency what changed
+	 */
+	public void dependencyChanged(AIDependency dependency) {
+		changed |= dependency.mask();
+	}
+
+	/**
+	 * The program makes the same choice as long as nothing it depends on changed, so it's only run
+	 * again when something did.
+	 */
+	private boolean hasToDecide(State state) {
+		if (!decided || decisionState != state) {
+			return true;
+		}
+
+		int dependencies = program.getDependencies();
+		if ((changed & dependencies) != 0) {
+			return true;
+		}
+		if ((dependencies & AIDependency.ROUND.mask()) != 0 && state.getTick() != decisionTick) {
+			return true;
+		}
+		// the line of sight uses the positions at the beginning of the round, so a change in the
+		// round of the decision is still seen in the next one
+		return (dependencies & AIDependency.WORLD.mask()) != 0
+				&& state.getLastWorldChangeTick() >= decisionTick;
+	}
+
 	/**
 	 * Get all Ai entries
 	 */
@@ -0,0 +1,62 @@
+package com.md.mechevo.game.ai;
+
+/**
+ * What a condition or an action looks at to decide. The player tells its AI when one of these
+ * changes, so the AI only decides again when something it depends on did.
+ */
+public enum AIDependency {
+	/**
+	 * Where the players are and where they face (all of them, the owner included), and which ones
+	 * are in the game.
+	 */
+	WORLD,
+
+	/**
+	 * The angle of the last hit the owner received.
+	 */
+	HIT,
+
+	/**
+	 * The slots of the owner's weapons, and whether they are ready to fire.
+	 */
+	WEAPONS,
+
+	/**
+	 * The heat of the owner.
+	 */
+	HEAT,
+
+	/**
+	 * The order the owner is executing.
+	 */
+	ORDER,
+
+	/**
+	 * Anything else, so it has to be looked at every round.
+	 */
+	ROUND;
+
+	/**
+	 * @return the bit of this dependency in a mask of dependencies
+	 */
+	public int mask() {
+		return 1 << this.ordinal();
+	}
+
+	/**
+	 * @param dependencies some dependencies
+	 * @return the mask with the bits of all of them
+	 */
+	public static int maskOf(AIDependency... dependencies) {
+		int mask = 0;
+		for (AIDependency dependency : dependencies) {
+			mask |= dependency.mask();
+		}
+		return mask;
+	}
+
+	/**
+	 * Mask of everything, for conditions and actions that don't say what they depend on.
+	 */
+	public static final int ALL = (1 << values().length) - 1;
+}
@@ -61,8 +61,8 @@ public class AIEntry {
 	 */
 	public boolean checkRequirements(State state) {
 		boolean pass = true;
-		for (Condition cond : this.conditions) {
-			pass = pass && cond.check(state);
+		for (int i = 0; i < this.conditions.size(); i++) {
+			pass = pass && this.conditions.get(i).evaluate(state);
 			if (!pass) {
 				return false;
 			}
@@ -76,8 +76,8 @@ public class AIEntry {
 	 * @return true if at least one of the actions can be performed, false otherwise.
 	 */
 	public boolean canPerformAnyAction(State state) {
-		for (Action action : this.actions) {
-			if (action.check(state)) {
+		for (int i = 0; i < this.actions.size(); i++) {
+			if (this.actions.get(i).check(state)) {
 				return true;
 			}
 		}
@@ -90,13 +90,13 @@ public class AIEntry {
 	 * 
 	 * @param state Current state of the game
 	 * @return Player reference if there is one, else its null
-	 * TODO: Optimize the preferredTarget retrieval
 	 */
 	public Player findPreferredTarget(State state) {
 		Player preferred = null;
-		for (Condition cond : this.conditions) {
-			if (cond.getPreferredPlayer(state) != null) {
-				preferred = cond.getPreferredPlayer(state);
+		for (int i = 0; i < this.conditions.size(); i++) {
+			Player condPreferred = this.conditions.get(i).evaluatePreferredPlayer(state);
+			if (condPreferred != null) {
+				preferred = condPreferred;
 			}
 		}
 		return preferred;
@@ -0,0 +1,202 @@
+package com.md.mechevo.game.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.md.mechevo.game.Player;
+import com.md.mechevo.game.State;
+import com.md.mechevo.game.action.Action;
+import com.md.mechevo.game.condition.Condition;
+
+/**
+ * The entries of an AIAlgorithm compiled to a flat list of instructions, so choosing an entry is a
+ * single loop over an int array instead of walking the entries and their lists of conditions and
+ * actions. It makes the same choices as the entries would: conditions are checked in the same
+ * order and stop at the first one that fails, and the preferred target is the one of the last
+ * condition that has one.
+ *
+ * Conditions that always apply and actions that can always be performed are not evaluated, and
+ * the entries after one that is always chosen are left out, since they can't be reached.
+ */
+public final class AIProgram {
+	/**
+	 * CONDITION condition jump: checks the condition, going to jump if it doesn't apply.
+	 */
+	static final int CONDITION = 0;
+
+	/**
+	 * ACTIONS first count jump: checks the actions, going to jump if none can be performed.
+	 */
+	static final int ACTIONS = 1;
+
+	/**
+	 * TARGET condition: takes the preferred target of the condition, if it has one.
+	 */
+	static final int TARGET = 2;
+
+	/**
+	 * SUGGEST entry: suggests the entry with the target taken so far.
+	 */
+	static final int SUGGEST = 3;
+
+	private final int[] code;
+	private final Condition[] conditions;
+	private final Action[] actions;
+	private final AIEntry[] entries;
+
+	/**
+	 * Mask of AIDependency of all the conditions and actions the program evaluates.
+	 */
+	private final int dependencies;
+
+	private AIProgram(int[] code, Condition[] conditions, Action[] actions, AIEntry[] entries) {
+		this.code = code;
+		this.conditions = conditions;
+		this.actions = actions;
+		this.entries = entries;
+
+		int mask = 0;
+		for (Condition cond : conditions) {
+			mask |= cond.getDependencies();
+		}
+		for (Action action : actions) {
+			mask |= action.getDependencies();
+		}
+		this.dependencies = mask;
+	}
+
+	/**
+	 * @param entries the entries, in order of priority
+	 * @return the program that chooses between them
+	 */
+	public static AIProgram compile(List<AIEntry> entries) {
+		int[] code = new int[16];
+		int size = 0;
+		ArrayList<Condition> conditions = new ArrayList<>();
+		ArrayList<Action> actions = new ArrayList<>();
+		ArrayList<AIEntry> reachable = new ArrayList<>();
+
+		for (AIEntry entry : entries) {
+			// the jumps of this entry go to the next one, which is only known at the end
+			int[] jumps = new int[entry.getConditions().size() + 1];
+			int numJumps = 0;
+			int firstCondition = conditions.size();
+
+			for (Condition cond : entry.getConditions()) {
+				if (!cond.isAlwaysTrue()) {
+					code = ensureCapacity(code, size + 3);
+					code[size++] = CONDITION;
+					code[size++] = conditions.size();
+					jumps[numJumps++] = size++;
+					conditions.add(cond);
+				}
+			}
+
+			boolean alwaysPossible = false;
+			for (Action action : entry.getActions()) {
+				alwaysPossible = alwaysPossible || action.isAlwaysPossible();
+			}
+			if (!alwaysPossible) {
+				code = ensureCapacity(code, size + 4);
+				code[size++] = ACTIONS;
+				code[size++] = actions.size();
+				code[size++] = entry.getActions().size();
+				jumps[numJumps++] = size++;
+				actions.addAll(entry.getActions());
+			}
+
+			for (int c = firstCondition; c < conditions.size(); c++) {
+				code = ensureCapacity(code, size + 2);
+				code[size++] = TARGET;
+				code[size++] = c;
+			}
+
+			code = ensureCapacity(code, size + 2);
+			code[size++] = SUGGEST;
+			code[size++] = reachable.size();
+			reachable.add(entry);
+
+			for (int i = 0; i < numJumps; i++) {
+				code[jumps[i]] = size;
+			}
+
+			if (numJumps == 0) {
+				// this entry is always chosen
+				break;
+			}
+		}
+
+		return new AIProgram(Arrays.copyOf(code, size), conditions.toArray(new Condition[0]),
+				actions.toArray(new Action[0]), reachable.toArray(new AIEntry[0]));
+	}
+
+	private static int[] ensureCapacity(int[] code, int capacity) {
+		if (capacity <= code.length) {
+			return code;
+		}
+		return Arrays.copyOf(code, Math.max(capacity, code.length * 2));
+	}
+
+	/**
+	 * Chooses the first entry whose conditions apply and that has an action that can be performed.
+	 *
+	 * @param state Current state of the game
+	 * @param suggestion where the choice is written
+	 * @return the given suggestion, or null if no entry can be chosen
+	 */
+	public AISuggestion run(State state, AISuggestion suggestion) {
+		Player target = null;
+		int pc = 0;
+		while (pc < code.length) {
+			switch (code[pc]) {
+				case CONDITION:
+					if (conditions[code[pc + 1]].evaluate(state)) {
+						pc += 3;
+					} else {
+						pc = code[pc + 2];
+					}
+					break;
+				case ACTIONS:
+					pc = this.anyPossible(state, code[pc + 1], code[pc + 2]) ? pc + 4 : code[pc + 3];
+					break;
+				case TARGET:
+					Player preferred = conditions[code[pc + 1]].evaluatePreferredPlayer(state);
+					if (preferred != null) {
+						target = preferred;
+					}
+					pc += 2;
+					break;
+				case SUGGEST:
+					suggestion.set(entries[code[pc + 1]], target);
+					return suggestion;
+				default:
+					throw new IllegalStateException("Unknown instruction " + code[pc]);
+			}
+		}
+		return null;
+	}
+
+	private boolean anyPossible(State state, int first, int count) {
+		for (int i = first; i < first + count; i++) {
+			if (actions[i].check(state)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the mask of AIDependency the choice depends on
+	 */
+	public int getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return the entries that can be chosen, in order of priority
+	 */
+	public List<AIEntry> getEntries() {
+		return Arrays.asList(entries);
+	}
+}
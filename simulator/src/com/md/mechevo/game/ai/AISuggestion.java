@@ -39,6 +39,14 @@ public final class AISuggestion {
 	private double currentActionTime;
 
 
+	/**
+	 * Constructor of an empty suggestion, to be set later.
+	 */
+	public AISuggestion() {
+		this.currentActionTime = 0;
+	}
+
+
 	/**
 	 * Constructor with specified owner.
 	 */
@@ -61,6 +69,19 @@ public final class AISuggestion {
 	}
 
 
+	/**
+	 * Makes this suggestion the same as a new one with the given entry and target, so the same
+	 * object can be used again.
+	 */
+	public void set(AIEntry entry, Player target) {
+		this.aiEntry = entry;
+		this.preferredTarget = target;
+		this.preferredPosition = null;
+		this.action = (entry.getActions().size() > 0) ? entry.getActions().get(0) : null;
+		this.currentActionTime = 0;
+	}
+
+
 	/**
 	 * Add time to the current action
 	 */
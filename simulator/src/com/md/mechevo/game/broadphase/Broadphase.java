@@ -0,0 +1,33 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.List;
+
+import com.md.mechevo.game.Solid;
+
+/**
+ * A Broadphase quickly discards the pairs of solids that can't be colliding, so the map only runs
+ * the exact collision test on the remaining candidates.
+ */
+public interface Broadphase {
+	/**
+	 * Synchronizes the broadphase with the current position of the solids. Called once per round,
+	 * after all the solids have been updated.
+	 *
+	 * @param solids all the solids in the map, sorted by id
+	 */
+	void update(List<Solid> solids);
+
+	/**
+	 * Removes the solid from the broadphase. Must be called when a solid leaves the map.
+	 */
+	void remove(Solid s);
+
+	/**
+	 * Finds all the solids that may be colliding with the given solid. It only reads the
+	 * broadphase, so it may be called from several threads at once between two updates.
+	 *
+	 * @param s the solid
+	 * @param out where the candidates are added, without duplicates and sorted by id
+	 */
+	void findCandidates(Solid s, List<Solid> out);
+}
@@ -0,0 +1,18 @@
+package com.md.mechevo.game.broadphase;
+
+public class BroadphaseFactory {
+	public static final String DEFAULT = "SpatialHashGrid";
+
+	public static Broadphase createBroadphase(String name) {
+		switch (name) {
+			case "BruteForce":
+				return new BruteForceBroadphase();
+			case "SpatialHashGrid":
+				return new SpatialHashGrid();
+			case "SweepAndPrune":
+				return new SweepAndPrune();
+			default:
+				throw new UnknownBroadphase(name);
+		}
+	}
+}
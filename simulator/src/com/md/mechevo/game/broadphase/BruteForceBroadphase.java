@@ -0,0 +1,31 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.List;
+
+import com.md.mechevo.game.Solid;
+
+/**
+ * Reference broadphase: every solid is a candidate of every other solid.
+ */
+public class BruteForceBroadphase implements Broadphase {
+	private List<Solid> solids;
+
+	@Override
+	public void update(List<Solid> solids) {
+		this.solids = solids;
+	}
+
+	@Override
+	public void remove(Solid s) {
+		// Empty on purpose
+	}
+
+	@Override
+	public void findCandidates(Solid s, List<Solid> out) {
+		for (int i = 0; i < this.solids.size(); i++) {
+			if (this.solids.get(i) != s) {
+				out.add(this.solids.get(i));
+			}
+		}
+	}
+}
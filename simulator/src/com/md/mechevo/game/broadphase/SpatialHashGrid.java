@@ -0,0 +1,207 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.md.mechevo.game.Player;
+import com.md.mechevo.game.Solid;
+import com.md.mechevo.game.projectile.Bullet;
+
+/**
+ * Uniform spatial hash grid used as the collision broadphase. Every solid is stored in all the
+ * cells its bounding box overlaps, so two solids that can touch always share at least one cell.
+ */
+public class SpatialHashGrid implements Broadphase {
+	/**
+	 * Cell size is measured in MapUnits. It matches the biggest moving solid.
+	 */
+	public static final double CELL_SIZE = Math.max(Player.RADIUS, Bullet.RADIUS);
+
+	public static final Comparator<Solid> BY_ID = new Comparator<Solid>() {
+		@Override
+		public int compare(Solid s1, Solid s2) {
+			return Integer.compare(s1.getId(), s2.getId());
+		}
+	};
+
+	/**
+	 * Lists of candidates up to this size are sorted by insertion.
+	 */
+	private static final int INSERTION_SORT_LIMIT = 16;
+
+	/**
+	 * Number of buckets at first, always a power of two.
+	 */
+	private static final int INITIAL_BUCKETS = 256;
+
+	/**
+	 * Solids inside each cell, in the bucket the cell coordinates hash to, so no key is boxed.
+	 * Cells that share a bucket share its solids, which only adds a few candidates that the exact
+	 * test discards. The buckets are doubled when there are more solids than buckets.
+	 */
+	private ArrayList<ArrayList<Solid>> buckets;
+
+	/**
+	 * Cell range {minX, minY, maxX, maxY} each solid is currently stored in.
+	 */
+	private IdentityHashMap<Solid, int[]> ranges;
+
+	public SpatialHashGrid() {
+		this.buckets = createBuckets(INITIAL_BUCKETS);
+		this.ranges = new IdentityHashMap<>();
+	}
+
+	private static ArrayList<ArrayList<Solid>> createBuckets(int count) {
+		ArrayList<ArrayList<Solid>> buckets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			buckets.add(new ArrayList<Solid>());
+		}
+		return buckets;
+	}
+
+	/**
+	 * Inserts the new solids and moves the ones whose cell range changed since the last update.
+	 * Solids that stayed in the same cells are left untouched.
+	 */
+	@Override
+	public void update(List<Solid> solids) {
+		for (int i = 0; i < solids.size(); i++) {
+			Solid s = solids.get(i);
+			// the bounding box covers the whole path travelled during the round
+			double radius = s.getRadius();
+			int minX = toCell(Math.min(s.getX(), s.getPreviousX()) - radius);
+			int minY = toCell(Math.min(s.getY(), s.getPreviousY()) - radius);
+			int maxX = toCell(Math.max(s.getX(), s.getPreviousX()) + radius);
+			int maxY = toCell(Math.max(s.getY(), s.getPreviousY()) + radius);
+
+			int[] range = this.ranges.get(s);
+			if (range == null) {
+				range = new int[4];
+				this.ranges.put(s, range);
+			} else if (range[0] == minX && range[1] == minY && range[2] == maxX
+					&& range[3] == maxY) {
+				continue;
+			} else {
+				this.removeFromCells(s, range);
+			}
+
+			range[0] = minX;
+			range[1] = minY;
+			range[2] = maxX;
+			range[3] = maxY;
+			this.addToCells(s, range);
+		}
+
+		if (this.ranges.size() > this.buckets.size()) {
+			this.rehash(this.buckets.size() * 2);
+		}
+	}
+
+	/**
+	 * Spreads the solids over a new number of buckets.
+	 */
+	private void rehash(int count) {
+		this.buckets = createBuckets(count);
+		for (Solid s : this.ranges.keySet()) {
+			this.addToCells(s, this.ranges.get(s));
+		}
+	}
+
+	@Override
+	public void remove(Solid s) {
+		int[] range = this.ranges.remove(s);
+		if (range != null) {
+			this.removeFromCells(s, range);
+		}
+	}
+
+	/**
+	 * Candidates are all the solids that share at least one cell with the given solid.
+	 */
+	@Override
+	public void findCandidates(Solid s, List<Solid> out) {
+		int[] range = this.ranges.get(s);
+		if (range == null) {
+			return;
+		}
+
+		int first = out.size();
+		for (int x = range[0]; x <= range[2]; x++) {
+			for (int y = range[1]; y <= range[3]; y++) {
+				ArrayList<Solid> bucket = this.buckets.get(this.bucketOf(x, y));
+				for (int i = 0; i < bucket.size(); i++) {
+					if (bucket.get(i) != s) {
+						out.add(bucket.get(i));
+					}
+				}
+			}
+		}
+
+		// solids that span several cells (or share a bucket) were added more than once
+		SpatialHashGrid.sortWithoutDuplicates(out, first);
+	}
+
+	/**
+	 * Sorts the solids by id and removes the duplicates.
+	 *
+	 * @param solids the solids
+	 * @param first only the solids from this index onwards are handled
+	 */
+	static void sortWithoutDuplicates(List<Solid> solids, int first) {
+		if (solids.size() - first > INSERTION_SORT_LIMIT) {
+			Collections.sort(solids.subList(first, solids.size()), BY_ID);
+		} else {
+			// candidates are usually a handful, sorted in place without allocating
+			for (int i = first + 1; i < solids.size(); i++) {
+				Solid s = solids.get(i);
+				int j = i - 1;
+				while (j >= first && solids.get(j).getId() > s.getId()) {
+					solids.set(j + 1, solids.get(j));
+					j -= 1;
+				}
+				solids.set(j + 1, s);
+			}
+		}
+
+		int last = first - 1;
+		for (int i = first; i < solids.size(); i++) {
+			if (last < first || solids.get(last) != solids.get(i)) {
+				last += 1;
+				solids.set(last, solids.get(i));
+			}
+		}
+		for (int i = solids.size() - 1; i > last; i--) {
+			solids.remove(i);
+		}
+	}
+
+	private void addToCells(Solid s, int[] range) {
+		for (int x = range[0]; x <= range[2]; x++) {
+			for (int y = range[1]; y <= range[3]; y++) {
+				this.buckets.get(this.bucketOf(x, y)).add(s);
+			}
+		}
+	}
+
+	private void removeFromCells(Solid s, int[] range) {
+		for (int x = range[0]; x <= range[2]; x++) {
+			for (int y = range[1]; y <= range[3]; y++) {
+				this.buckets.get(this.bucketOf(x, y)).remove(s);
+			}
+		}
+	}
+
+	static int toCell(double coord) {
+		return (int) Math.floor(coord / CELL_SIZE);
+	}
+
+	/**
+	 * @return the bucket of the cell, hashing its coordinates with two large primes
+	 */
+	private int bucketOf(int x, int y) {
+		return ((x * 73856093) ^ (y * 19349663)) & (this.buckets.size() - 1);
+	}
+}
@@ -0,0 +1,193 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.md.mechevo.game.Solid;
+
+/**
+ * Immutable grid for solids that never move (e.g. obstacles). It is built once and only queried
+ * by the moving solids, so static solids are never updated nor tested against each other.
+ */
+public final class StaticGrid {
+	private final List<Solid> solids;
+
+	/**
+	 * Solids inside each cell of the area covered by the solids, row after row, or null for empty
+	 * cells. The area is known when the grid is built, so cells are found without hashing.
+	 */
+	private final Solid[][] cells;
+	private final int minX;
+	private final int minY;
+	private final int columns;
+	private final int rows;
+
+	public StaticGrid(List<? extends Solid> solids) {
+		this.solids = Collections.unmodifiableList(new ArrayList<Solid>(solids));
+
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (Solid s : this.solids) {
+			double radius = s.getRadius();
+			minX = Math.min(minX, SpatialHashGrid.toCell(s.getX() - radius));
+			minY = Math.min(minY, SpatialHashGrid.toCell(s.getY() - radius));
+			maxX = Math.max(maxX, SpatialHashGrid.toCell(s.getX() + radius));
+			maxY = Math.max(maxY, SpatialHashGrid.toCell(s.getY() + radius));
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.columns = this.solids.isEmpty() ? 0 : maxX - minX + 1;
+		this.rows = this.solids.isEmpty() ? 0 : maxY - minY + 1;
+
+		ArrayList<ArrayList<Solid>> building = new ArrayList<>();
+		for (int i = 0; i < this.columns * this.rows; i++) {
+			building.add(null);
+		}
+		for (Solid s : this.solids) {
+			double radius = s.getRadius();
+			for (int x = SpatialHashGrid.toCell(s.getX() - radius); x <= SpatialHashGrid
+					.toCell(s.getX() + radius); x++) {
+				for (int y = SpatialHashGrid.toCell(s.getY() - radius); y <= SpatialHashGrid
+						.toCell(s.getY() + radius); y++) {
+					int index = this.indexOf(x, y);
+					if (building.get(index) == null) {
+						building.set(index, new ArrayList<Solid>());
+					}
+					building.get(index).add(s);
+				}
+			}
+		}
+
+		this.cells = new Solid[building.size()][];
+		for (int i = 0; i < building.size(); i++) {
+			ArrayList<Solid> cell = building.get(i);
+			if (cell != null) {
+				this.cells[i] = cell.toArray(new Solid[cell.size()]);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the cell in the cells array, or -1 if it's outside the area
+	 */
+	private int indexOf(int x, int y) {
+		if (x < this.minX || x >= this.minX + this.columns || y < this.minY
+				|| y >= this.minY + this.rows) {
+			return -1;
+		}
+		return (y - this.minY) * this.columns + (x - this.minX);
+	}
+
+	public List<Solid> getSolids() {
+		return solids;
+	}
+
+	public int size() {
+		return solids.size();
+	}
+
+	/**
+	 * Finds all the static solids that may be colliding with the given solid, taking into account
+	 * the path it travelled during the round.
+	 *
+	 * @param s the moving solid
+	 * @param out where the candidates are added, without duplicates and sorted by id
+	 */
+	public void findCandidates(Solid s, List<Solid> out) {
+		if (this.cells.length == 0) {
+			return;
+		}
+
+		double radius = s.getRadius();
+		// only the cells inside the area covered by the static solids can have any
+		int minX =
+				Math.max(this.minX, SpatialHashGrid.toCell(Math.min(s.getX(), s.getPreviousX())
+						- radius));
+		int minY =
+				Math.max(this.minY, SpatialHashGrid.toCell(Math.min(s.getY(), s.getPreviousY())
+						- radius));
+		int maxX =
+				Math.min(this.minX + this.columns - 1, SpatialHashGrid.toCell(Math.max(s.getX(),
+						s.getPreviousX()) + radius));
+		int maxY =
+				Math.min(this.minY + this.rows - 1, SpatialHashGrid.toCell(Math.max(s.getY(),
+						s.getPreviousY()) + radius));
+
+		int first = out.size();
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				this.addCell(x, y, out);
+			}
+		}
+
+		// solids that span several cells were added more than once
+		SpatialHashGrid.sortWithoutDuplicates(out, first);
+	}
+
+	/**
+	 * Finds all the static solids that may be crossed by a segment, only visiting the cells the
+	 * segment goes through (Amanatides and Woo's traversal).
+	 *
+	 * @param x0 the start of the segment
+	 * @param y0 the start of the segment
+	 * @param x1 the end of the segment
+	 * @param y1 the end of the segment
+	 * @param out where the candidates are added, without duplicates and sorted by id
+	 */
+	public void findCandidatesAlong(double x0, double y0, double x1, double y1, List<Solid> out) {
+		if (this.cells.length == 0) {
+			return;
+		}
+
+		int x = SpatialHashGrid.toCell(x0);
+		int y = SpatialHashGrid.toCell(y0);
+		int endX = SpatialHashGrid.toCell(x1);
+		int endY = SpatialHashGrid.toCell(y1);
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		int stepX = (dx > 0) ? 1 : -1;
+		int stepY = (dy > 0) ? 1 : -1;
+
+		// fraction of the segment travelled when crossing the next cell border on each axis, and
+		// when crossing a whole cell
+		double cellSize = SpatialHashGrid.CELL_SIZE;
+		double nextX =
+				(dx == 0) ? Double.POSITIVE_INFINITY : ((stepX > 0) ? (x + 1) * cellSize - x0 : x0
+						- x * cellSize) / Math.abs(dx);
+		double nextY =
+				(dy == 0) ? Double.POSITIVE_INFINITY : ((stepY > 0) ? (y + 1) * cellSize - y0 : y0
+						- y * cellSize) / Math.abs(dy);
+		double deltaX = (dx == 0) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+		double deltaY = (dy == 0) ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+
+		int first = out.size();
+		this.addCell(x, y, out);
+		// the axes that already reached the last cell are never stepped again, so rounding errors
+		// can't make the traversal miss it
+		while (x != endX || y != endY) {
+			if (y == endY || (x != endX && nextX < nextY)) {
+				x += stepX;
+				nextX += deltaX;
+			} else {
+				y += stepY;
+				nextY += deltaY;
+			}
+			this.addCell(x, y, out);
+		}
+
+		SpatialHashGrid.sortWithoutDuplicates(out, first);
+	}
+
+	private void addCell(int x, int y, List<Solid> out) {
+		int index = this.indexOf(x, y);
+		if (index >= 0 && this.cells[index] != null) {
+			Solid[] cell = this.cells[index];
+			for (int i = 0; i < cell.length; i++) {
+				out.add(cell[i]);
+			}
+		}
+	}
+}
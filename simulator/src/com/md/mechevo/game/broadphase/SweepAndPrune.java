@@ -0,0 +1,113 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import com.md.mechevo.game.Solid;
+
+/**
+ * Sweep and prune broadphase. Solids are kept sorted by the left side of their bounding box
+ * between rounds. Since solids only move a few MapUnits per round the axis is almost sorted, so it
+ * is fixed with an insertion sort. Fits long corridors better than a grid.
+ */
+public class SweepAndPrune implements Broadphase {
+	/**
+	 * Solids sorted by Entry#minX.
+	 */
+	private ArrayList<Entry> axis;
+
+	private HashMap<Integer, Entry> entries;
+
+	public SweepAndPrune() {
+		this.axis = new ArrayList<>();
+		this.entries = new HashMap<>();
+	}
+
+	@Override
+	public void update(List<Solid> solids) {
+		for (int i = 0; i < solids.size(); i++) {
+			Solid s = solids.get(i);
+			Entry entry = this.entries.get(s.getId());
+			if (entry == null) {
+				entry = new Entry(s);
+				this.entries.put(s.getId(), entry);
+				this.axis.add(entry);
+			}
+			entry.updateBounds();
+			entry.candidates.clear();
+		}
+
+		// insertion sort
+		for (int i = 1; i < this.axis.size(); i++) {
+			Entry entry = this.axis.get(i);
+			int j = i - 1;
+			while (j >= 0 && this.axis.get(j).minX > entry.minX) {
+				this.axis.set(j + 1, this.axis.get(j));
+				j -= 1;
+			}
+			this.axis.set(j + 1, entry);
+		}
+
+		// sweep: only the entries that begin before this one ends can overlap it
+		for (int i = 0; i < this.axis.size(); i++) {
+			Entry e1 = this.axis.get(i);
+			for (int j = i + 1; j < this.axis.size() && this.axis.get(j).minX <= e1.maxX; j++) {
+				Entry e2 = this.axis.get(j);
+				if (e1.minY <= e2.maxY && e2.minY <= e1.maxY) {
+					e1.candidates.add(e2.solid);
+					e2.candidates.add(e1.solid);
+				}
+			}
+		}
+
+		for (int i = 0; i < this.axis.size(); i++) {
+			Collections.sort(this.axis.get(i).candidates, SpatialHashGrid.BY_ID);
+		}
+	}
+
+	@Override
+	public void remove(Solid s) {
+		Entry entry = this.entries.remove(s.getId());
+		if (entry != null) {
+			this.axis.remove(entry);
+		}
+	}
+
+	@Override
+	public void findCandidates(Solid s, List<Solid> out) {
+		Entry entry = this.entries.get(s.getId());
+		if (entry != null) {
+			out.addAll(entry.candidates);
+		}
+	}
+
+	/**
+	 * Bounding box of a solid in the axis.
+	 */
+	private static class Entry {
+		private Solid solid;
+		private double minX;
+		private double maxX;
+		private double minY;
+		private double maxY;
+		private ArrayList<Solid> candidates;
+
+		private Entry(Solid solid) {
+			this.solid = solid;
+			this.candidates = new ArrayList<>();
+		}
+
+		/**
+		 * The bounding box covers the whole path travelled during the round.
+		 */
+		private void updateBounds() {
+			double radius = this.solid.getRadius();
+			this.minX = Math.min(this.solid.getX(), this.solid.getPreviousX()) - radius;
+			this.maxX = Math.max(this.solid.getX(), this.solid.getPreviousX()) + radius;
+			this.minY = Math.min(this.solid.getY(), this.solid.getPreviousY()) - radius;
+			this.maxY = Math.max(this.solid.getY(), this.solid.getPreviousY()) + radius;
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package com.md.mechevo.game.broadphase;
+
+public class UnknownBroadphase extends Error {
+	public UnknownBroadphase(String broadphaseName) {
+		super("Unknown broadphase: " + broadphaseName);
+	}
+}
@@ -1,9 +1,12 @@
 package com.md.mechevo.game.condition;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 
 /**
@@ -15,6 +18,16 @@ public abstract class Condition {
 	private Player owner; // /< Player that controls object with condition
 	private ArrayList<String> param; // /< Condition dependent attribute
 
+	/**
+	 * State and round the last results were computed in, so they are only computed once per round.
+	 */
+	private State memoState;
+	private int memoTick;
+	private boolean checkMemoized;
+	private boolean checkResult;
+	private boolean preferredMemoized;
+	private Player preferredResult;
+
 	public Condition(Player owner) {
 		this.owner = owner;
 	}
@@ -40,6 +53,16 @@ public abstract class Condition {
 		this.param = param;
 	}
 
+	/**
+	 * Get the params as the condition understood them, so two conditions with params written
+	 * differently (such as "5" and "5.0") can be told to be the same.
+	 * 
+	 * @return the parsed params, the params as written unless overridden
+	 */
+	public List<?> getParsedParam() {
+		return (param == null) ? Collections.emptyList() : param;
+	}
+
 	/**
 	 * Check if the condition applies.
 	 * 
@@ -58,4 +81,97 @@ public abstract class Condition {
 	abstract public Player getPreferredPlayer(State state);
 
 
+	/**
+	 * Check if the condition has side effects (other than remembering a preferred target), so it
+	 * has to be checked every time it's asked. Such conditions are never memoized.
+	 */
+	public boolean hasSideEffects() {
+		return false;
+	}
+
+
+	/**
+	 * Check if the condition remembers nothing between checks (such as the last target it saw), so
+	 * the same object can be shared by several entries of a player without changing their results.
+	 */
+	public boolean isStateless() {
+		return false;
+	}
+
+
+	/**
+	 * Same as check, but only checks the condition the first time it's asked in a round.
+	 * 
+	 * @param state Current State of the game
+	 * @return True if the condition applies
+	 */
+	public final boolean evaluate(State state) {
+		if (this.hasSideEffects()) {
+			return this.check(state);
+		}
+
+		this.startRound(state);
+		if (!this.checkMemoized) {
+			this.checkResult = this.check(state);
+			this.checkMemoized = true;
+			// checking may have changed the preferred target
+			this.preferredMemoized = false;
+		}
+		return this.checkResult;
+	}
+
+
+	/**
+	 * Same as getPreferredPlayer, but only asks for it the first time in a round.
+	 * 
+	 * @param state Current State of the game
+	 * @return Reference to target Player or null if none
+	 */
+	public final Player evaluatePreferredPlayer(State state) {
+		if (this.hasSideEffects()) {
+			return this.getPreferredPlayer(state);
+		}
+
+		this.startRound(state);
+		if (!this.preferredMemoized) {
+			this.preferredResult = this.getPreferredPlayer(state);
+			this.preferredMemoized = true;
+		}
+		return this.preferredResult;
+	}
+
+
+	/**
+	 * Forgets the results of a previous round.
+	 */
+	private void startRound(State state) {
+		if (this.memoState != state || this.memoTick != state.getTick()) {
+			this.memoState = state;
+			this.memoTick = state.getTick();
+			this.checkMemoized = false;
+			this.preferredMemoized = false;
+			this.preferredResult = null;
+		}
+	}
+
+
+	/**
+	 * Check if the condition always applies and never has a preferred target, so it doesn't need to
+	 * be evaluated at all.
+	 */
+	public boolean isAlwaysTrue() {
+		return false;
+	}
+
+
+	/**
+	 * Get what the condition looks at, so it's only checked again when one of them changes.
+	 * 
+	 * @return a mask of AIDependency, everything unless overridden
+	 */
+	public int getDependencies() {
+		return AIDependency.ALL;
+	}
+
+
 }
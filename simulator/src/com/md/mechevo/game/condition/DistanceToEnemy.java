@@ -1,10 +1,13 @@
 package com.md.mechevo.game.condition;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-import com.md.mechevo.game.Map;
+import com.md.mechevo.game.Geometry;
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 /**
  * Receives the distance to the enemy
@@ -42,6 +45,11 @@ public class DistanceToEnemy extends Condition {
 		return distance;
 	}
 
+	@Override
+	public List<?> getParsedParam() {
+		return Collections.singletonList(distance);
+	}
+
 	/**
 	 * Check if the condition applies.
 	 *
@@ -50,24 +58,18 @@ public class DistanceToEnemy extends Condition {
 	 */
 	@Override
 	public boolean check(State state) {
-		ArrayList<Player> players = getOwner().fieldOfView(state, Player.FieldOfViewAngle.VIEW);
-		if (!players.isEmpty()) {
-			double nearestDist = Double.MAX_VALUE;
-			double dist;
-			for (Player p : players) {
-				double distX = this.getOwner().getPosition().getX() - p.getPosition().getX();
-				double distY = this.getOwner().getPosition().getY() - p.getPosition().getY();
-				dist = Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
-				if (dist < nearestDist) {
-					nearestDist = dist;
-					this.target = p;
-				}
-			}
+		Player nearest = this.getOwner().getPerception().getNearestPlayer(state);
+		if (nearest != null) {
+			this.target = nearest;
 		}
 
 		return this.target != null
-				&& Map.getDistance(this.getOwner().getPosition(), this.target.getPosition()) < this
-						.getDistance();
+				&& Geometry.isCloserThan(this.getOwner(), this.target, this.getDistance());
+	}
+
+	@Override
+	public int getDependencies() {
+		return AIDependency.WORLD.mask();
 	}
 
 	/**
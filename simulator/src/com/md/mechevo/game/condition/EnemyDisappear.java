@@ -23,6 +23,11 @@ public class EnemyDisappear extends Condition {
 		return false;
 	}
 
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
 	/**
 	 * Get the preferred target for this condition.
 	 *
@@ -33,4 +38,12 @@ public class EnemyDisappear extends Condition {
 	public Player getPreferredPlayer(State state) {
 		return null;
 	}
+
+	/**
+	 * Remembers nothing between checks.
+	 */
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
 }
@@ -1,9 +1,12 @@
 package com.md.mechevo.game.condition;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 
 /**
  * ReceivedDamage (frontal, back, side) : true if just received damage
@@ -48,6 +51,11 @@ public class ReceivedDamage extends Condition {
 		this.face = face;
 	}
 
+	@Override
+	public List<?> getParsedParam() {
+		return Collections.singletonList(face);
+	}
+
 	/**
 	 * Check if the condition applies. If this condition applies we should update the players lastHitAngle to null
 	 * so that the player doesn't keep repeating this action
@@ -69,6 +77,11 @@ public class ReceivedDamage extends Condition {
 		return false;
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.maskOf(AIDependency.HIT, AIDependency.WORLD);
+	}
+
 	/**
 	 * Get the preferred target for this condition.
 	 *
@@ -80,6 +93,14 @@ public class ReceivedDamage extends Condition {
 		return null;
 	}
 
+	/**
+	 * Checking forgets the last hit, so the same hit doesn't apply twice.
+	 */
+	@Override
+	public boolean hasSideEffects() {
+		return true;
+	}
+
 	public static enum Face {
 		LEFT(45f, 135f), BACK(135f, 225f), FRONT(315f, 45f), RIGHT(225f, 315f);
 
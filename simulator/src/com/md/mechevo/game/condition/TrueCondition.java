@@ -21,6 +21,11 @@ public class TrueCondition extends Condition {
 		return true;
 	}
 
+	@Override
+	public int getDependencies() {
+		return 0;
+	}
+
 
 	/**
 	 * Get the preferred target for this condition.
@@ -33,5 +38,16 @@ public class TrueCondition extends Condition {
 	}
 
 
+	@Override
+	public boolean isAlwaysTrue() {
+		return true;
+	}
 
+	/**
+	 * Remembers nothing between checks.
+	 */
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
 }
@@ -3,10 +3,12 @@ package com.md.mechevo.game.condition;
 import static com.md.mechevo.game.weapon.Weapon.WeaponSlot;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.md.mechevo.game.Player;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIDependency;
 import com.md.mechevo.game.weapon.Weapon;
 
 /**
@@ -32,6 +34,11 @@ public class WeaponReady extends Condition {
 		}
 	}
 
+	@Override
+	public List<?> getParsedParam() {
+		return Collections.singletonList(weaponSlot);
+	}
+
 	/**
 	 * Check if the condition applies.
 	 *
@@ -41,7 +48,8 @@ public class WeaponReady extends Condition {
 	@Override
 	public boolean check(State state) {
 		List<Weapon> weapons = this.getOwner().getWeapons();
-		for (Weapon weapon : weapons) {
+		for (int i = 0; i < weapons.size(); i++) {
+			Weapon weapon = weapons.get(i);
 			if ((weapon.getCurrentSlot() == weaponSlot) && weapon.getCurrentCooldown() == 0) {
 				return true;
 			}
@@ -49,6 +57,11 @@ public class WeaponReady extends Condition {
 		return false;
 	}
 
+	@Override
+	public int getDependencies() {
+		return AIDependency.WEAPONS.mask();
+	}
+
 	/**
 	 * Get the preferred target for this condition.
 	 *
@@ -60,4 +73,12 @@ public class WeaponReady extends Condition {
 		// Empty on purpose
 		return null;
 	}
+
+	/**
+	 * Remembers nothing between checks.
+	 */
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
 }
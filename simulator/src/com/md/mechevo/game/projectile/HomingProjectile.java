@@ -69,28 +69,25 @@ public class HomingProjectile extends Projectile {
 	 */
 	@Override
 	public void update(State state, double dtime) {
-		final Position myPos = this.getPosition();
-		final Position targetPos = this.getTarget().getPosition();
-		final double frontPointX =
-				this.getPosition().getX() + Math.cos(Math.toRadians(this.getAngle()));
-		final double frontPointY =
-				this.getPosition().getY() + Math.sin(Math.toRadians(this.getAngle()));
+		final double myX = this.getX();
+		final double myY = this.getY();
+		final double targetX = this.getTarget().getX();
+		final double targetY = this.getTarget().getY();
+		final double frontPointX = myX + Math.cos(Math.toRadians(this.getAngle()));
+		final double frontPointY = myY + Math.sin(Math.toRadians(this.getAngle()));
 
 		double distBA =
-				Math.sqrt(Math.pow((myPos.getX() - targetPos.getX()), 2)
-						+ (Math.pow((myPos.getY() - targetPos.getY()), 2)));
+				Math.sqrt(Math.pow((myX - targetX), 2) + (Math.pow((myY - targetY), 2)));
 		double distBC =
-				Math.sqrt(Math.pow((myPos.getX() - frontPointX), 2)
-						+ (Math.pow((myPos.getY() - frontPointY), 2)));
+				Math.sqrt(Math.pow((myX - frontPointX), 2) + (Math.pow((myY - frontPointY), 2)));
 		double dotProd =
-				((frontPointX - myPos.getX()) * (targetPos.getX() - myPos.getX()) + (frontPointY - myPos
-						.getY()) * (targetPos.getY() - myPos.getY()));
+				((frontPointX - myX) * (targetX - myX) + (frontPointY - myY) * (targetY - myY));
 		double cosValue = (dotProd / (distBA * distBC));
 		double rotationAngle = Math.toDegrees(Math.acos(cosValue)) * dtime;
 
 		// Rotate clockwise/counter-clockwise is determined by sign of cross-product
-		double vecToTargetX = targetPos.getX() - myPos.getX();
-		double vecToTargetY = targetPos.getY() - myPos.getY();
+		double vecToTargetX = targetX - myX;
+		double vecToTargetY = targetY - myY;
 		double crossProd = (vecToTargetX * frontPointY) - (vecToTargetY * frontPointX);
 
 		if (crossProd > 0) {
@@ -98,7 +95,7 @@ public class HomingProjectile extends Projectile {
 					+ ((rotationAngle < rotSpeed * dtime) ? rotationAngle : rotSpeed * dtime));
 		} else {
 			this.setAngle(this.getAngle()
-					- ((rotationAngle < rotSpeed * dtime) ? rotationAngle : rotSpeed*dtime));
+					- ((rotationAngle < rotSpeed * dtime) ? rotationAngle : rotSpeed * dtime));
 		}
 
 		// After calculating the new angle we simply move forward the missile like a regular solid
@@ -38,4 +38,12 @@ public class Mine extends Projectile {
 	public void update(State state, double dtime) {
 		// Empty on purpose.
 	}
+
+	/**
+	 * Mines just wait for a player to step on them.
+	 */
+	@Override
+	public boolean canSleep() {
+		return this.getSpeed() == 0;
+	}
 }
@@ -29,8 +29,8 @@ public abstract class Projectile extends Solid implements EventObservable {
 			EventData event =
 					new EventData("createProjectile")
 							.addAttribute("id", this.getId())
-							.addAttribute("x", this.getPosition().getX())
-							.addAttribute("y", this.getPosition().getY())
+							.addAttribute("x", this.getX())
+							.addAttribute("y", this.getY())
 							.addAttribute("type", this.getClass().getSimpleName());
 			this.notifyEventObserver(event);
 		}
@@ -47,6 +47,36 @@ public abstract class Projectile extends Solid implements EventObservable {
 		}
 	}
 
+	/**
+	 * Projectiles only move themselves (homing ones also look at their target, which is not a
+	 * projectile).
+	 */
+	@Override
+	public boolean updatesIndependently() {
+		return true;
+	}
+
+	@Override
+	public int getCollisionLayer() {
+		return LAYER_PROJECTILE;
+	}
+
+	/**
+	 * Projectiles react to players (damage) and obstacles (get destroyed).
+	 */
+	@Override
+	public int getCollisionMask() {
+		return LAYER_PLAYER | LAYER_OBSTACLE;
+	}
+
+	/**
+	 * Projectiles never do anything to the player that fired them.
+	 */
+	@Override
+	public boolean reactsTo(Solid s) {
+		return super.reactsTo(s) && s.getId() != this.getWeapon().getOwner().getId();
+	}
+
 	@Override
 	public abstract void collidesWith(State state, Player p);
 
@@ -3,6 +3,11 @@ package com.md.mechevo.game.sentry;
 import com.md.mechevo.game.*;
 import com.md.mechevo.game.projectile.Projectile;
 
+/**
+ * A solid left on the map by a player. Sentries never sleep (see Solid#canSleep) unless they say
+ * so: one that stands still and has nothing to count down in update (cooldown, time to live) can
+ * override canSleep.
+ */
 public abstract class Sentry extends Solid {
 	private Player owner;
 	private int damage;
@@ -45,6 +50,19 @@ public abstract class Sentry extends Solid {
 		this.timeToLive = timeToLive;
 	}
 
+	@Override
+	public int getCollisionLayer() {
+		return LAYER_SENTRY;
+	}
+
+	/**
+	 * Sentries don't react to any collision.
+	 */
+	@Override
+	public int getCollisionMask() {
+		return 0;
+	}
+
 	@Override
 	public abstract void collidesWith(State state, Player p);
 
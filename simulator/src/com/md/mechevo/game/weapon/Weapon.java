@@ -1,6 +1,7 @@
 package com.md.mechevo.game.weapon;
 
 import com.md.mechevo.game.*;
+import com.md.mechevo.game.ai.AIDependency;
 
 public abstract class Weapon implements EventObservable {
 	private Player owner;
@@ -39,14 +40,27 @@ public abstract class Weapon implements EventObservable {
 	}
 
 	public void updateCurrentCooldown(double dtime) {
+		boolean wasReady = this.currentCooldown == 0;
 		this.currentCooldown -= dtime;
 		if (this.currentCooldown < 0) {
 			this.currentCooldown = 0;
 		}
+		this.readinessChanged(wasReady);
 	}
 
 	public void increaseCurrentcooldown() {
+		boolean wasReady = this.currentCooldown == 0;
 		this.currentCooldown += this.cooldown;
+		this.readinessChanged(wasReady);
+	}
+
+	/**
+	 * Tells the owner's AI when the weapon becomes ready to fire, or stops being.
+	 */
+	private void readinessChanged(boolean wasReady) {
+		if (this.owner != null && wasReady != (this.currentCooldown == 0)) {
+			this.owner.notifyChanged(AIDependency.WEAPONS);
+		}
 	}
 
 	public WeaponSlot getCurrentSlot() {
@@ -55,6 +69,9 @@ public abstract class Weapon implements EventObservable {
 
 	public void setCurrentSlot(WeaponSlot currentSlot) {
 		this.currentSlot = currentSlot;
+		if (this.owner != null) {
+			this.owner.notifyChanged(AIDependency.WEAPONS);
+		}
 	}
 
 	// interface EventObservable
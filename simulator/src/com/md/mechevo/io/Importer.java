@@ -1,8 +1,11 @@
 package com.md.mechevo.io;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -13,6 +16,7 @@ import com.md.mechevo.game.action.ActionFactory;
 import com.md.mechevo.game.action.IdleAction;
 import com.md.mechevo.game.ai.AIAlgorithm;
 import com.md.mechevo.game.ai.AIEntry;
+import com.md.mechevo.game.broadphase.BroadphaseFactory;
 import com.md.mechevo.game.condition.Condition;
 import com.md.mechevo.game.condition.ConditionFactory;
 import com.md.mechevo.game.condition.TrueCondition;
@@ -27,7 +31,8 @@ public final class Importer {
 	 * Creates the initial state from the data received in JSON. The data must be in the following
 	 * structure: 
 	 *   {
-	 *     "map" : { "width":double, "height":double },
+	 *     "map" : { "width":double, "height":double, "broadphase":string (optional),
+	 *               "parallel":boolean (optional), "decisionInterval":int (optional) },
 	 *     "obstacles" : [ { "x":double, "y":double, "radius":double }, ... ],
 	 *     "players" : [ {
 	 *       "teamId":int, 
@@ -55,16 +60,25 @@ public final class Importer {
 		JsonObject mapJson = tree.get("map").getAsJsonObject();
 		double mapWidth = mapJson.get("width").getAsDouble();
 		double mapHeight = mapJson.get("height").getAsDouble();
+		String broadphase =
+				mapJson.has("broadphase") ? mapJson.get("broadphase").getAsString()
+						: BroadphaseFactory.DEFAULT;
 
 		EventObserver report = new EventObserver();
-		State state = new State(new Map(mapWidth, mapHeight));
+		State state =
+				new State(new Map(mapWidth, mapHeight,
+						BroadphaseFactory.createBroadphase(broadphase)));
 		state.registerEventObserver(report);
+		if (mapJson.has("parallel") && mapJson.get("parallel").getAsBoolean()) {
+			state.getMap().setUpdatePool(ForkJoinPool.commonPool());
+		}
+		if (mapJson.has("decisionInterval")) {
+			state.setDecisionInterval(mapJson.get("decisionInterval").getAsInt());
+		}
 
 		List<Obstacle> obstacles =
 				Importer.createObstacles(tree.get("obstacles").getAsJsonArray(), state, report);
-		for (Obstacle o : obstacles) {
-			state.addObstacle(o);
-		}
+		state.addObstacles(obstacles);
 
 		List<Player> players = createPlayers(tree.get("players").getAsJsonArray(), state, report);
 		for (Player p : players) {
@@ -116,13 +130,14 @@ public final class Importer {
 			EventObserver report) {
 		AIAlgorithm algorithm = new AIAlgorithm(player);
 		player.setAlgorithm(algorithm);
+		HashMap<List<Object>, Condition> sharedConditions = new HashMap<>();
 
 		for (int entryId = 0; entryId < algorithmJson.size(); entryId++) {
 			AIEntry entry = new AIEntry(algorithm);
 			algorithm.addEntry(entry);
 
 			createConditions(algorithmJson.get(entryId).getAsJsonObject().get("conditions")
-					.getAsJsonArray(), entry, player);
+					.getAsJsonArray(), entry, player, sharedConditions);
 
 			createActions(algorithmJson.get(entryId).getAsJsonObject().get("actions")
 					.getAsJsonArray(), entry, player, report);
@@ -133,16 +148,24 @@ public final class Importer {
 		algorithm.addEntry(entry);
 		entry.addCondition(new TrueCondition(player));
 		entry.addAction(new IdleAction(player));
+
+		algorithm.compile();
 	}
 
 	/**
-	 * Parses and creates all the AIConditions for this AIEntry.
+	 * Parses and creates all the AIConditions for this AIEntry. A condition with the same type and
+	 * parsed params as one in a previous entry of the player is the same object, so it is only
+	 * evaluated once per round, if it is stateless and has no side effects. The others, such as
+	 * EnemySpotted, keep their own last target, but still share what the player sees in a round
+	 * through its PerceptionSnapshot.
 	 *
 	 * @param conditionsJson the array with all the AIConditions.
 	 * @param entry the entry these conditions belong to.
 	 * @param player the owner.
+	 * @param sharedConditions the conditions of the player so far, by type and parsed params.
 	 */
-	private static void createConditions(JsonArray conditionsJson, AIEntry entry, Player player) {
+	private static void createConditions(JsonArray conditionsJson, AIEntry entry, Player player,
+			HashMap<List<Object>, Condition> sharedConditions) {
 		for (int conditionId = 0; conditionId < conditionsJson.size(); conditionId++) {
 			JsonObject conditionJson = conditionsJson.get(conditionId).getAsJsonObject();
 
@@ -152,9 +175,18 @@ public final class Importer {
 				params.add(paramsJson.get(i).getAsString());
 			}
 
-			Condition condition =
-					ConditionFactory.createCondition(conditionJson.get("name").getAsString(),
-							player, params);
+			String name = conditionJson.get("name").getAsString();
+			Condition condition = ConditionFactory.createCondition(name, player, params);
+			if (condition.isStateless() && !condition.hasSideEffects()) {
+				List<Object> key =
+						Arrays.<Object>asList(condition.getClass(), condition.getParsedParam());
+				Condition shared = sharedConditions.get(key);
+				if (shared == null) {
+					sharedConditions.put(key, condition);
+				} else {
+					condition = shared;
+				}
+			}
 			entry.addCondition(condition);
 		}
 	}
@@ -203,7 +235,8 @@ public final class Importer {
 
 	/**
 	 * Parses and creates all obstacles from the json.
-	 * Creates the event 'begin'.
+	 * Creates the event 'begin'. The obstacles are indexed once they are added to the state, and
+	 * are not updated afterwards since they never move.
 	 *
 	 * @param obstaclesJson the array of obstacles in JSON
 	 * @param state the initial state
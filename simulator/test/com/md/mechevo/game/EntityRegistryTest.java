@@ -0,0 +1,114 @@
+package com.md.mechevo.game;
+
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityRegistryTest {
+	private static Obstacle createSolid(int id) {
+		return new Obstacle(id, new Position(0, 0), 10);
+	}
+
+	@Test
+	public void testHandlesResolveWhileAlive() {
+		EntityRegistry registry = new EntityRegistry();
+		Obstacle o1 = createSolid(0);
+		Obstacle o2 = createSolid(1);
+		long h1 = registry.add(o1);
+		long h2 = registry.add(o2);
+
+		Assert.assertEquals(h1, o1.getHandle());
+		Assert.assertSame(o1, registry.get(h1));
+		Assert.assertSame(o2, registry.get(h2));
+		Assert.assertEquals(2, registry.size());
+		Assert.assertNull(registry.get(EntityRegistry.INVALID_HANDLE));
+	}
+
+	/**
+	 * A reused slot must not make an old handle point to the new solid.
+	 */
+	@Test
+	public void testStaleHandleAfterReuse() {
+		EntityRegistry registry = new EntityRegistry();
+		Obstacle o1 = createSolid(0);
+		long h1 = registry.add(o1);
+
+		Assert.assertTrue(registry.remove(o1));
+		Assert.assertFalse(registry.remove(o1));
+		Assert.assertEquals(EntityRegistry.INVALID_HANDLE, o1.getHandle());
+
+		Obstacle o2 = createSolid(1);
+		long h2 = registry.add(o2);
+		Assert.assertNull(registry.get(h1));
+		Assert.assertSame(o2, registry.get(h2));
+		Assert.assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testGrows() {
+		EntityRegistry registry = new EntityRegistry();
+		long[] handles = new long[1000];
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = registry.add(createSolid(i));
+		}
+		for (int i = 0; i < handles.length; i++) {
+			Assert.assertEquals(i, registry.get(handles[i]).getId());
+		}
+	}
+
+	@Test
+	public void testFindById() {
+		State state = new State(new Map(800, 800));
+		Player player = new Player(state.getNextId(), 0, new Position(100, 100), 0);
+		state.addPlayer(player);
+		Obstacle obstacle = new Obstacle(state.getNextId(), new Position(300, 300), 10);
+		state.addObstacle(obstacle);
+
+		Assert.assertSame(player, state.findPlayerById(player.getId()));
+		Assert.assertSame(obstacle, state.findSolidById(obstacle.getId()));
+		Assert.assertNull(state.findPlayerById(obstacle.getId()));
+		Assert.assertNull(state.findSolidById(-1));
+		Assert.assertNull(state.findSolidById(1000));
+
+		state.getRegistry().remove(player);
+		Assert.assertNull(state.findPlayerById(player.getId()));
+	}
+
+	/**
+	 * Solids with the same id are equal and must hash the same.
+	 */
+	@Test
+	public void testHashCodeConsistentWithEquals() {
+		Obstacle o1 = createSolid(5);
+		Obstacle o2 = createSolid(5);
+		Assert.assertEquals(o1, o2);
+		Assert.assertEquals(o1.hashCode(), o2.hashCode());
+
+		HashSet<Solid> set = new HashSet<>();
+		set.add(o1);
+		Assert.assertTrue(set.contains(o2));
+	}
+
+	/**
+	 * Ids keep growing while few solids are alive at once, and are still found.
+	 */
+	@Test
+	public void testFindsLargeIds() {
+		EntityRegistry registry = new EntityRegistry();
+		for (int id = 0; id < 100000; id += 7) {
+			Obstacle o = createSolid(id);
+			registry.add(o);
+			Assert.assertSame(o, registry.getById(id));
+			Assert.assertTrue(registry.remove(o));
+			Assert.assertNull(registry.getById(id));
+		}
+		Assert.assertEquals(0, registry.size());
+		Assert.assertNull(registry.getById(-1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNegativeIds() {
+		new EntityRegistry().add(createSolid(-1));
+	}
+}
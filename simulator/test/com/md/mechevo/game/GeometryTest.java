@@ -0,0 +1,114 @@
+package com.md.mechevo.game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeometryTest {
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * The angle as it used to be computed, with acos of the normalized dot product and the sign of
+	 * the cross product.
+	 */
+	private static double legacyAngleTo(double x1, double y1, double x2, double y2) {
+		double rightX = x1 + 20;
+		double rightY = y1;
+		double distBA = Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2));
+		double distBC = Math.sqrt(Math.pow(x1 - rightX, 2) + Math.pow(y1 - rightY, 2));
+		double dotProd = (rightX - x1) * (x2 - x1) + (rightY - y1) * (y2 - y1);
+		double angle = Math.toDegrees(Math.acos(dotProd / (distBA * distBC)));
+		double crossProd = (rightX - x1) * (y2 - y1) - (rightY - y1) * (x2 - x1);
+		if (crossProd > 0) {
+			angle *= -1;
+		}
+		return (angle + 360) % 360;
+	}
+
+	private static double angleDifference(double a, double b) {
+		double diff = Math.abs(a - b) % 360;
+		return Math.min(diff, 360 - diff);
+	}
+
+	@Test
+	public void testAngleMatchesLegacyFormula() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			double x1 = random.nextDouble() * 800;
+			double y1 = random.nextDouble() * 800;
+			double x2 = random.nextDouble() * 800;
+			double y2 = random.nextDouble() * 800;
+			double expected = legacyAngleTo(x1, y1, x2, y2);
+			double actual = Geometry.angleTo(x1, y1, x2, y2);
+			Assert.assertTrue(actual >= 0 && actual < 360);
+			Assert.assertEquals(0, angleDifference(expected, actual), EPSILON);
+		}
+	}
+
+	@Test
+	public void testAxisAngles() {
+		Assert.assertEquals(0, Geometry.angleTo(100, 100, 200, 100), EPSILON);
+		Assert.assertEquals(90, Geometry.angleTo(100, 100, 100, 0), EPSILON);
+		Assert.assertEquals(180, Geometry.angleTo(100, 100, 0, 100), EPSILON);
+		Assert.assertEquals(270, Geometry.angleTo(100, 100, 100, 200), EPSILON);
+		// coincident points have no direction, but must not give NaN
+		Assert.assertEquals(0, Geometry.angleTo(100, 100, 100, 100), EPSILON);
+	}
+
+	@Test
+	public void testDistances() {
+		Obstacle o1 = new Obstacle(0, new Position(100, 100), 10);
+		Obstacle o2 = new Obstacle(1, new Position(130, 140), 10);
+
+		Assert.assertEquals(2500, Geometry.distanceSquared(o1, o2), EPSILON);
+		Assert.assertEquals(50, Geometry.distance(o1, o2), EPSILON);
+		Assert.assertEquals(50, Map.getDistance(o1.getPosition(), o2.getPosition()), EPSILON);
+		Assert.assertTrue(Geometry.isCloserThan(o1, o2, 50.1));
+		Assert.assertFalse(Geometry.isCloserThan(o1, o2, 50));
+	}
+
+	/**
+	 * The cone test agrees with comparing the angles, away from the boundary.
+	 */
+	@Test
+	public void testConeMatchesAngles() {
+		Random random = new Random(7);
+		double[] halfAngles = {30, 60, 120};
+		for (double halfAngle : halfAngles) {
+			double cos = Math.cos(Math.toRadians(halfAngle));
+			for (int i = 0; i < 10000; i++) {
+				double heading = random.nextDouble() * 360;
+				double x = random.nextDouble() * 800 - 400;
+				double y = random.nextDouble() * 800 - 400;
+				double difference = angleDifference(heading, Geometry.angleOf(x, y));
+				if (Math.abs(difference - halfAngle) < 1e-6) {
+					continue;
+				}
+
+				double dirX = Math.cos(Math.toRadians(heading));
+				double dirY = -Math.sin(Math.toRadians(heading));
+				Assert.assertEquals(difference < halfAngle,
+						Geometry.isInCone(x, y, dirX, dirY, cos));
+			}
+		}
+	}
+
+	@Test
+	public void testClassifyInCone() {
+		double[] xs = {200, 100, 0, 100, 100};
+		double[] ys = {100, 0, 100, 200, 100};
+		double[] distances = new double[xs.length];
+		boolean[] inside = new boolean[xs.length];
+
+		// looking up (90 degrees, smaller y) from (100, 100), with a 60 degrees half aperture
+		int count =
+				Geometry.classifyInCone(100, 100, 0, -1, 0.5, xs, ys, xs.length, distances, inside);
+
+		Assert.assertEquals(2, count);
+		Assert.assertTrue(Arrays.equals(new boolean[] {false, true, false, false, true}, inside));
+		Assert.assertEquals(10000, distances[0], EPSILON);
+		Assert.assertEquals(0, distances[4], EPSILON);
+	}
+}
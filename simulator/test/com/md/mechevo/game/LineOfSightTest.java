@@ -0,0 +1,80 @@
+package com.md.mechevo.game;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineOfSightTest {
+	private static Player createPlayer(State state, double x, double y) {
+		Player player = new Player(state.getNextId(), 0, new Position(x, y), 0);
+		state.addPlayer(player);
+		return player;
+	}
+
+	@Test
+	public void testObstacleBetweenBlocks() {
+		State state = new State(new Map(800, 800));
+		Player p1 = createPlayer(state, 100, 400);
+		Player p2 = createPlayer(state, 700, 400);
+		Player p3 = createPlayer(state, 300, 400);
+		Player p4 = createPlayer(state, 100, 100);
+		state.addObstacle(new Obstacle(state.getNextId(), new Position(500, 410), 20));
+
+		LineOfSight lineOfSight = state.getLineOfSight();
+		Assert.assertFalse(lineOfSight.isVisible(p1, p2));
+		Assert.assertFalse(lineOfSight.isVisible(p2, p1));
+		// the obstacle is behind p3
+		Assert.assertTrue(lineOfSight.isVisible(p1, p3));
+		Assert.assertTrue(lineOfSight.isVisible(p4, p2));
+	}
+
+	/**
+	 * Walking the cells along a segment finds the same obstacles as testing all of them.
+	 */
+	@Test
+	public void testSameAsTestingEveryObstacle() {
+		Random random = new Random(3);
+		State state = new State(new Map(1600, 1200));
+		ArrayList<Obstacle> obstacles = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			obstacles.add(new Obstacle(state.getNextId(), new Position(random.nextInt(1600),
+					random.nextInt(1200)), 5 + random.nextInt(60)));
+		}
+		state.addObstacles(obstacles);
+
+		for (int i = 0; i < 2000; i++) {
+			double x0 = random.nextDouble() * 1600;
+			double y0 = random.nextDouble() * 1200;
+			double x1 = random.nextDouble() * 1600;
+			double y1 = random.nextDouble() * 1200;
+			boolean clear = true;
+			for (Obstacle o : obstacles) {
+				clear &= !LineOfSight.crosses(x0, y0, x1, y1, o);
+			}
+			Assert.assertEquals(clear, state.getLineOfSight().isClear(x0, y0, x1, y1));
+		}
+	}
+
+	/**
+	 * Each pair is computed once per round, from the positions at the beginning of the round.
+	 */
+	@Test
+	public void testCachedDuringTheRound() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player p1 = createPlayer(state, 100, 400);
+		Player p2 = createPlayer(state, 700, 400);
+		p1.paralyse();
+		p2.paralyse();
+		state.addObstacle(new Obstacle(state.getNextId(), new Position(400, 400), 20));
+		Assert.assertFalse(state.getLineOfSight().isVisible(p1, p2));
+
+		p2.setXY(700, 100);
+		Assert.assertFalse(state.getLineOfSight().isVisible(p2, p1));
+
+		state.update(0.1);
+		Assert.assertTrue(state.getLineOfSight().isVisible(p2, p1));
+	}
+}
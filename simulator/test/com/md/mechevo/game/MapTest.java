@@ -0,0 +1,565 @@
+package com.md.mechevo.game;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.broadphase.BroadphaseFactory;
+import com.md.mechevo.game.projectile.Bullet;
+import com.md.mechevo.game.projectile.Mine;
+import com.md.mechevo.game.weapon.Minigun;
+import com.md.mechevo.game.weapon.Weapon;
+
+public class MapTest {
+	private static final String[] BROADPHASES = {"BruteForce", "SpatialHashGrid", "SweepAndPrune"};
+	private static final double DTIME = 0.1;
+
+	private static State createState(String broadphase) {
+		State state = new State(new Map(800, 800, BroadphaseFactory.createBroadphase(broadphase)));
+		state.registerEventObserver(new EventObserver());
+		return state;
+	}
+
+	/**
+	 * Paralysed players don't need an AI to be updated.
+	 */
+	private static Player createPlayer(State state, int teamId, double x, double y) {
+		Player player = new Player(state.getNextId(), teamId, new Position(x, y), 0);
+		player.paralyse();
+		state.addPlayer(player);
+		return player;
+	}
+
+	/**
+	 * A bullet touching two enemies at once only hits one of them (the first one by id), and never
+	 * its owner.
+	 */
+	@Test
+	public void testBulletHitsOneOfTheEnemiesItTouches() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy1 = createPlayer(state, 1, 400, 350);
+			Player enemy2 = createPlayer(state, 1, 400, 450);
+			Weapon weapon = new Minigun(owner);
+			Bullet bullet = new Bullet(state.getNextId(), new Position(400, 400), 0, weapon);
+			state.addProjectile(bullet);
+
+			state.update(DTIME);
+
+			Assert.assertEquals(broadphase, Player.HEALTH, owner.getHealth());
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), enemy1.getHealth());
+			Assert.assertEquals(broadphase, Player.HEALTH, enemy2.getHealth());
+			Assert.assertTrue(broadphase, bullet.isDestroyed());
+			Assert.assertFalse(broadphase, state.getMap().getElements().contains(bullet));
+		}
+	}
+
+	/**
+	 * A fast bullet going through two enemies in a line in a single round only hits the one it
+	 * reaches first, whatever their ids.
+	 */
+	@Test
+	public void testFastBulletHitsOnlyFirstEnemyInLine() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player far = createPlayer(state, 1, 550, 400);
+			Player near = createPlayer(state, 1, 400, 400);
+			Weapon weapon = new Minigun(owner);
+			Bullet bullet = new Bullet(state.getNextId(), new Position(300, 400), 0, weapon);
+			state.addProjectile(bullet);
+
+			state.update(1);
+
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), near.getHealth());
+			Assert.assertEquals(broadphase, Player.HEALTH, far.getHealth());
+			Assert.assertTrue(broadphase, bullet.isDestroyed());
+		}
+	}
+
+	/**
+	 * A fast bullet is stopped by an obstacle between it and an enemy, even though its path
+	 * during the round goes through both.
+	 */
+	@Test
+	public void testFastBulletStoppedByObstacleBeforeEnemy() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy = createPlayer(state, 1, 500, 400);
+			state.addObstacle(new Obstacle(state.getNextId(), new Position(400, 400), 20));
+			Weapon weapon = new Minigun(owner);
+			Bullet bullet = new Bullet(state.getNextId(), new Position(300, 400), 0, weapon);
+			state.addProjectile(bullet);
+
+			state.update(1);
+
+			Assert.assertEquals(broadphase, Player.HEALTH, enemy.getHealth());
+			Assert.assertTrue(broadphase, bullet.isDestroyed());
+		}
+	}
+
+	/**
+	 * A bullet fast enough to go through an enemy in a single round hits it, even though it's in
+	 * front of the enemy at the beginning of the round and behind it at the end.
+	 */
+	@Test
+	public void testFastBulletHitsEnemyItGoesThrough() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy = createPlayer(state, 1, 450, 400);
+			Weapon weapon = new Minigun(owner);
+			Bullet bullet = new Bullet(state.getNextId(), new Position(300, 400), 0, weapon);
+			state.addProjectile(bullet);
+
+			// the bullet moves 300 MapUnits, from 150 in front of the enemy to 150 behind it
+			state.update(1);
+
+			Assert.assertEquals(broadphase, 600, bullet.getX(), 1e-9);
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), enemy.getHealth());
+			Assert.assertTrue(broadphase, bullet.isDestroyed());
+		}
+	}
+
+	/**
+	 * A fast bullet that passes close to an enemy without touching it doesn't hit it.
+	 */
+	@Test
+	public void testFastBulletMissesEnemyItPassesBy() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			// the path of the bullet is 70 MapUnits away from the center, just over both radii
+			Player enemy = createPlayer(state, 1, 450, 470);
+			Weapon weapon = new Minigun(owner);
+			Bullet bullet = new Bullet(state.getNextId(), new Position(300, 400), 0, weapon);
+			state.addProjectile(bullet);
+
+			state.update(1);
+
+			Assert.assertEquals(broadphase, 600, bullet.getX(), 1e-9);
+			Assert.assertEquals(broadphase, Player.HEALTH, enemy.getHealth());
+			Assert.assertFalse(broadphase, bullet.isDestroyed());
+		}
+	}
+
+	/**
+	 * A mine only damages enemies once, and is removed after exploding.
+	 */
+	@Test
+	public void testMineDamagesEnemyOnce() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy = createPlayer(state, 1, 400, 400);
+			Weapon weapon = new Minigun(owner);
+			Mine mine = new Mine(state.getNextId(), new Position(420, 400), 0, weapon);
+			state.addProjectile(mine);
+
+			state.update(DTIME);
+			state.update(DTIME);
+
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), enemy.getHealth());
+			Assert.assertTrue(broadphase, mine.isDestroyed());
+		}
+	}
+
+	/**
+	 * A mine with nobody around falls asleep, and still explodes when an enemy steps on it later.
+	 */
+	@Test
+	public void testSleepingMineWakesUp() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy = createPlayer(state, 1, 700, 700);
+			Weapon weapon = new Minigun(owner);
+			Mine mine = new Mine(state.getNextId(), new Position(400, 400), 0, weapon);
+			state.addProjectile(mine);
+
+			state.update(DTIME);
+			state.update(DTIME);
+			Assert.assertTrue(broadphase, mine.isSleeping());
+			Assert.assertFalse(broadphase, state.getMap().getElements().contains(mine));
+			Assert.assertTrue(broadphase, state.getMap().getSleeping().contains(mine));
+
+			enemy.setXY(420, 400);
+			state.update(DTIME);
+
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), enemy.getHealth());
+			Assert.assertTrue(broadphase, mine.isDestroyed());
+			Assert.assertFalse(broadphase, mine.isSleeping());
+			Assert.assertTrue(broadphase, state.getMap().getSleeping().isEmpty());
+			Assert.assertTrue(broadphase, state.getProjectiles().isEmpty());
+		}
+	}
+
+	/**
+	 * A player that ends a round outside of the map is moved back inside, and the AI of every
+	 * player is told the world changed.
+	 */
+	@Test
+	public void testClampedPlayerChangesWorld() {
+		State state = createState("SpatialHashGrid");
+		Player player = createPlayer(state, 0, 400, 400);
+		state.update(DTIME);
+		int tick = state.getTick();
+		Assert.assertTrue(state.getLastWorldChangeTick() < tick);
+
+		// moved by the store alone, so nothing knows it left the map
+		state.getMap().getStore().setXY(player.getSlot(), 900, 400);
+		state.update(DTIME);
+
+		Assert.assertEquals(800 - player.getRadius(), player.getX(), 0);
+		Assert.assertEquals(tick, state.getLastWorldChangeTick());
+	}
+
+	/**
+	 * A sleeping mine doesn't react to its owner standing on it, so it isn't woken up every round,
+	 * and still explodes under an enemy.
+	 */
+	@Test
+	public void testSleepingMineIgnoresOwner() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 100);
+			Player enemy = createPlayer(state, 1, 700, 700);
+			Weapon weapon = new Minigun(owner);
+			Mine mine = new Mine(state.getNextId(), new Position(400, 400), 0, weapon);
+			state.addProjectile(mine);
+			state.update(DTIME);
+			Assert.assertTrue(broadphase, mine.isSleeping());
+
+			owner.setXY(410, 400);
+			Assert.assertFalse(broadphase, mine.reactsTo(owner));
+			Assert.assertTrue(broadphase, mine.reactsTo(enemy));
+			for (int round = 0; round < 3; round++) {
+				state.update(DTIME);
+				Assert.assertTrue(broadphase, mine.isSleeping());
+				Assert.assertEquals(broadphase, Player.HEALTH, owner.getHealth());
+			}
+
+			enemy.setXY(390, 400);
+			state.update(DTIME);
+			Assert.assertEquals(broadphase, Player.HEALTH - weapon.getDamage(), enemy.getHealth());
+			Assert.assertTrue(broadphase, mine.isDestroyed());
+		}
+	}
+
+	/**
+	 * A bullet that hits an obstacle is destroyed, and the obstacle is left untouched.
+	 */
+	@Test
+	public void testBulletDestroyedByObstacle() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player owner = createPlayer(state, 0, 100, 400);
+			Obstacle obstacle = new Obstacle(state.getNextId(), new Position(300, 400), 20);
+			state.addObstacle(obstacle);
+			Bullet bullet =
+					new Bullet(state.getNextId(), new Position(240, 400), 0, new Minigun(owner));
+			state.addProjectile(bullet);
+
+			state.update(DTIME);
+
+			Assert.assertTrue(broadphase, bullet.isDestroyed());
+			Assert.assertFalse(broadphase, obstacle.isDestroyed());
+			Assert.assertEquals(broadphase, 300, obstacle.getPosition().getX(), 0);
+		}
+	}
+
+	/**
+	 * Obstacles partly outside of the map are moved inside once, when they are added, and stay
+	 * there, without moving from their old position during a round.
+	 */
+	@Test
+	public void testObstaclesMovedInsideMap() {
+		State state = createState(BroadphaseFactory.DEFAULT);
+		Obstacle left = new Obstacle(state.getNextId(), new Position(10, 400), 20);
+		Obstacle bottom = new Obstacle(state.getNextId(), new Position(400, 810), 20);
+		Obstacle inside = new Obstacle(state.getNextId(), new Position(400, 400), 20);
+		state.addObstacles(Arrays.asList(left, bottom, inside));
+
+		for (int round = 0; round < 2; round++) {
+			Assert.assertEquals(20, left.getX(), 0);
+			Assert.assertEquals(400, left.getY(), 0);
+			Assert.assertEquals(400, bottom.getX(), 0);
+			Assert.assertEquals(780, bottom.getY(), 0);
+			Assert.assertEquals(400, inside.getX(), 0);
+			Assert.assertEquals(400, inside.getY(), 0);
+			for (Obstacle o : state.getObstacles()) {
+				Assert.assertEquals(o.getPosition(), o.getPreviousPosition());
+			}
+			state.update(DTIME);
+		}
+	}
+
+	/**
+	 * Destroyed projectiles are forgotten by the state too, so firing for a long time doesn't
+	 * accumulate them.
+	 */
+	@Test
+	public void testDestroyedProjectilesAreForgotten() {
+		State state = createState(BroadphaseFactory.DEFAULT);
+		Player owner = createPlayer(state, 0, 100, 400);
+		Obstacle obstacle = new Obstacle(state.getNextId(), new Position(300, 400), 20);
+		state.addObstacle(obstacle);
+		Weapon weapon = new Minigun(owner);
+		Bullet first = null;
+		for (int round = 0; round < 100; round++) {
+			Bullet bullet = new Bullet(state.getNextId(), new Position(240, 400), 0, weapon);
+			state.addProjectile(bullet);
+			if (first == null) {
+				first = bullet;
+			}
+			long handle = bullet.getHandle();
+			Assert.assertSame(bullet, state.getSolid(handle));
+
+			state.update(DTIME);
+
+			Assert.assertNull(state.getSolid(handle));
+			Assert.assertTrue(state.getProjectiles().isEmpty());
+			Assert.assertEquals(1, state.getMap().getElements().size());
+			Assert.assertEquals(2, state.getRegistry().size());
+		}
+		Assert.assertEquals(EntityRegistry.INVALID_HANDLE, first.getHandle());
+	}
+
+	/**
+	 * Two overlapping players are pushed apart only once, by the player with the highest id, the
+	 * way the push has always been computed.
+	 */
+	@Test
+	public void testPlayersPushedApartOnce() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player p1 = createPlayer(state, 0, 400, 400);
+			Player p2 = createPlayer(state, 1, 430, 420);
+
+			state.update(DTIME);
+
+			// the push of the original code: an angle in radians, moved along as if in degrees
+			double angle = Math.atan(20.0 / 30.0);
+			double half = -(Math.sqrt(30 * 30 + 20 * 20) - 2 * Player.RADIUS) / 2;
+			double pushX = half * Math.cos(Math.toRadians(angle));
+			double pushY = -(half * Math.sin(Math.toRadians(angle)));
+			Assert.assertEquals(broadphase, 400 - pushX, p1.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 400 - pushY, p1.getY(), 1e-9);
+			Assert.assertEquals(broadphase, 430 + pushX, p2.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 420 + pushY, p2.getY(), 1e-9);
+			Assert.assertEquals(broadphase, Player.HEALTH, p1.getHealth());
+			Assert.assertEquals(broadphase, Player.HEALTH, p2.getHealth());
+		}
+	}
+
+	/**
+	 * Collisions are found before resolving any of them, so a player pushed into another one is
+	 * only pushed apart from it in the next round.
+	 */
+	@Test
+	public void testChainOfPlayersPushedRoundByRound() {
+		for (String broadphase : BROADPHASES) {
+			State state = createState(broadphase);
+			Player p1 = createPlayer(state, 0, 400, 400);
+			Player p2 = createPlayer(state, 1, 440, 400);
+			Player p3 = createPlayer(state, 0, 480, 400);
+
+			// p1 and p3 don't touch: p2 is pushed away from p1, and then back by p3
+			state.update(DTIME);
+			Assert.assertEquals(broadphase, 390, p1.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 435, p2.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 495, p3.getX(), 1e-9);
+
+			// the overlap of p1 and p2 created by the second push
+			state.update(DTIME);
+			Assert.assertEquals(broadphase, 382.5, p1.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 442.5, p2.getX(), 1e-9);
+			Assert.assertEquals(broadphase, 495, p3.getX(), 1e-9);
+			for (Player p : state.getPlayers()) {
+				Assert.assertEquals(broadphase, 400, p.getY(), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Runs a few rounds of rows of overlapping players, which push each other in chains, with
+	 * bullets flying through them, and returns everything that can be observed afterwards. There
+	 * are more elements than ContactTask.THRESHOLD, so a pool finds the collisions in parallel.
+	 */
+	private static String runPushingCrowd(String broadphase, ForkJoinPool pool) {
+		State state = createState(broadphase);
+		state.getMap().setUpdatePool(pool);
+		Random random = new Random(11);
+		Player owner = createPlayer(state, 0, 10, 10);
+		Weapon weapon = new Minigun(owner);
+		for (int row = 0; row < 10; row++) {
+			for (int i = 0; i < 15; i++) {
+				createPlayer(state, 1, 60 + 45 * i + random.nextInt(10), 60 + 70 * row
+						+ random.nextInt(10));
+			}
+		}
+		for (int i = 0; i < 30; i++) {
+			Position position = new Position(random.nextInt(800), random.nextInt(800));
+			state.addProjectile(new Bullet(state.getNextId(), position, random.nextInt(360),
+					weapon));
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (int round = 0; round < 5; round++) {
+			state.update(DTIME);
+			for (Player p : state.getPlayers()) {
+				result.append(p.getId()).append(' ').append(p.getX()).append(' ')
+						.append(p.getY()).append(' ').append(p.getHealth()).append('\n');
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Every broadphase gives exactly the same game, also when the players push each other in
+	 * chains (resolved round by round, see testChainOfPlayersPushedRoundByRound).
+	 */
+	@Test
+	public void testBroadphasesGiveSameResults() {
+		String expected = runPushingCrowd("BruteForce", null);
+		for (String broadphase : BROADPHASES) {
+			Assert.assertEquals(broadphase, expected, runPushingCrowd(broadphase, null));
+		}
+	}
+
+	/**
+	 * A bullet that spawns another one the first time it moves, taking its id from the state like
+	 * the weapons do. Spawning is sequential, so it's not updated independently.
+	 */
+	private static class SplittingBullet extends Bullet {
+		private boolean split = false;
+
+		public SplittingBullet(int id, Position position, double angle, Weapon weapon) {
+			super(id, position, angle, weapon);
+		}
+
+		@Override
+		public void update(State state, double dtime) {
+			super.update(state, dtime);
+			if (!split) {
+				split = true;
+				state.addProjectile(new Bullet(state.getNextId(), this.getPosition(),
+						this.getAngle() + 90, this.getWeapon()));
+			}
+		}
+
+		@Override
+		public boolean updatesIndependently() {
+			return false;
+		}
+	}
+
+	/**
+	 * A bullet that spawns while claiming to be independent.
+	 */
+	private static class BrokenSplittingBullet extends SplittingBullet {
+		public BrokenSplittingBullet(int id, Position position, double angle, Weapon weapon) {
+			super(id, position, angle, weapon);
+		}
+
+		@Override
+		public boolean updatesIndependently() {
+			return true;
+		}
+	}
+
+	/**
+	 * Runs a round full of projectiles and returns everything that can be observed afterwards.
+	 */
+	private static String runCrowdedGame(ForkJoinPool pool) {
+		State state = createState(BroadphaseFactory.DEFAULT);
+		state.getMap().setUpdatePool(pool);
+		Random random = new Random(7);
+		Player owner = createPlayer(state, 0, 100, 100);
+		Weapon weapon = new Minigun(owner);
+		for (int i = 0; i < 10; i++) {
+			createPlayer(state, 1, random.nextInt(800), random.nextInt(800));
+		}
+		for (int i = 0; i < 500; i++) {
+			Position position = new Position(random.nextInt(800), random.nextInt(800));
+			int angle = random.nextInt(360);
+			if (i % 3 == 0) {
+				int id = state.getNextId();
+				state.addProjectile(new SplittingBullet(id, position, angle, weapon));
+			} else {
+				state.addProjectile(new Bullet(state.getNextId(), position, angle, weapon));
+			}
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (int round = 0; round < 10; round++) {
+			state.update(DTIME);
+			for (Solid s : state.getMap().getElements()) {
+				result.append(s.getId()).append(' ').append(s.getX()).append(' ')
+						.append(s.getY()).append(' ').append(s.getAngle()).append('\n');
+			}
+			for (Player p : state.getPlayers()) {
+				result.append(p.getId()).append(' ').append(p.getHealth()).append('\n');
+			}
+		}
+		return result.append(state.buildEventReport()).toString();
+	}
+
+	/**
+	 * Updating the projectiles and finding the collisions in parallel gives exactly the same game,
+	 * spawns included.
+	 */
+	@Test
+	public void testParallelUpdateSameAsSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Assert.assertEquals(runCrowdedGame(null), runCrowdedGame(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Finding the collisions in parallel gives the same positions as finding them one element after
+	 * the other, also when the players push each other in chains: the pairs are resolved in the
+	 * same order either way.
+	 */
+	@Test
+	public void testParallelPushesSameAsSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (String broadphase : BROADPHASES) {
+				Assert.assertEquals(broadphase, runPushingCrowd(broadphase, null),
+						runPushingCrowd(broadphase, pool));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Spawning from a solid updated in parallel fails instead of handing out ids in any order.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testNoSpawnsInParallel() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			State state = createState(BroadphaseFactory.DEFAULT);
+			state.getMap().setUpdatePool(pool);
+			Weapon weapon = new Minigun(createPlayer(state, 0, 100, 100));
+			for (int i = 0; i < 2 * UpdateTask.THRESHOLD; i++) {
+				Position position = new Position(400, 400);
+				int id = state.getNextId();
+				state.addProjectile(new BrokenSplittingBullet(id, position, 0, weapon));
+			}
+			state.update(DTIME);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
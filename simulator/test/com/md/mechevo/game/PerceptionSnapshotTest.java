@@ -0,0 +1,75 @@
+package com.md.mechevo.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PerceptionSnapshotTest {
+	private static Player createPlayer(State state, int teamId, double x, double y, double angle) {
+		Player player = new Player(state.getNextId(), teamId, new Position(x, y), angle);
+		player.paralyse();
+		state.addPlayer(player);
+		return player;
+	}
+
+	/**
+	 * The snapshot sees the same as the spatial queries.
+	 */
+	@Test
+	public void testSameAsSpatialQuery() {
+		State state = new State(new Map(800, 800));
+		Player owner = createPlayer(state, 0, 400, 400, 0);
+		Player near = createPlayer(state, 1, 500, 420, 0);
+		createPlayer(state, 1, 700, 380, 0);
+		createPlayer(state, 1, 100, 400, 0);
+		Obstacle obstacle = new Obstacle(state.getNextId(), new Position(600, 410), 10);
+		state.addObstacle(obstacle);
+		state.addObstacle(new Obstacle(state.getNextId(), new Position(400, 100), 10));
+
+		PerceptionSnapshot perception = owner.getPerception();
+		Assert.assertSame(near, perception.getNearestPlayer(state));
+		Assert.assertEquals(100 * 100 + 20 * 20, perception.getNearestPlayerDistanceSquared(state),
+				1e-9);
+		Assert.assertEquals(Map.getAngleToTarget(owner, near),
+				perception.getNearestPlayerAngle(state), 1e-9);
+		Assert.assertSame(obstacle, perception.getNearestObstacle(state));
+		Assert.assertEquals(200 * 200 + 10 * 10,
+				perception.getNearestObstacleDistanceSquared(state), 1e-9);
+
+		owner.rotate(90);
+		Assert.assertNull(perception.getNearestPlayer(state));
+		Assert.assertEquals(Double.MAX_VALUE, perception.getNearestPlayerDistanceSquared(state), 0);
+		Assert.assertEquals(owner.getAngle(), perception.getNearestPlayerAngle(state), 0);
+		Assert.assertSame(state.getSpatialQuery().findNearest(owner,
+				SpatialQuery.Filter.OBSTACLES_IN_VIEW), perception.getNearestObstacle(state));
+	}
+
+	/**
+	 * The snapshot is only taken again when the owner moves or turns, or in a new round, so the
+	 * conditions and actions of a player share the same lookup during its update.
+	 */
+	@Test
+	public void testTakenOncePerRound() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = createPlayer(state, 0, 400, 400, 0);
+		Player near = createPlayer(state, 1, 500, 400, 0);
+		Player far = createPlayer(state, 1, 600, 400, 0);
+
+		PerceptionSnapshot perception = owner.getPerception();
+		Assert.assertSame(near, perception.getNearestPlayer(state));
+		Assert.assertTrue(perception.isUpToDate(state));
+
+		// not looked up again in the same round while the owner stays still
+		far.setXY(450, 380);
+		Assert.assertSame(near, perception.getNearestPlayer(state));
+
+		owner.translate(1, 0);
+		Assert.assertFalse(perception.isUpToDate(state));
+		Assert.assertSame(far, perception.getNearestPlayer(state));
+
+		far.setXY(700, 400);
+		state.update(0.1);
+		Assert.assertFalse(perception.isUpToDate(state));
+		Assert.assertSame(near, perception.getNearestPlayer(state));
+	}
+}
@@ -0,0 +1,109 @@
+package com.md.mechevo.game;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.action.IdleAction;
+import com.md.mechevo.game.action.MoveNearObstacle;
+import com.md.mechevo.game.ai.AIAlgorithm;
+import com.md.mechevo.game.ai.AIEntry;
+import com.md.mechevo.game.condition.DistanceToEnemy;
+import com.md.mechevo.game.condition.EnemySpotted;
+import com.md.mechevo.game.condition.TrueCondition;
+
+public class PlayerTest {
+	private static final int ITERATIONS = 20000;
+	private static final long MAX_ALLOCATED_BYTES = 512;
+	private static final double DTIME = 0.1;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static long allocatedBytes() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Paralysed players don't decide when the state is updated, so the test decides for them.
+	 */
+	private static Player createPlayer(State state, int teamId, double x, double y) {
+		Player player = new Player(state.getNextId(), teamId, new Position(x, y), 0);
+		player.paralyse();
+		state.addPlayer(player);
+		return player;
+	}
+
+	/**
+	 * The owner turns every round, so it sees the enemies come and go and switches between its
+	 * entries (whose actions don't report anything when they end).
+	 */
+	private static AIAlgorithm createAlgorithm(Player owner) {
+		AIAlgorithm algorithm = new AIAlgorithm(owner);
+		owner.setAlgorithm(algorithm);
+
+		AIEntry spotted = new AIEntry(algorithm);
+		spotted.addCondition(new EnemySpotted(owner, new ArrayList<String>()));
+		spotted.addAction(new MoveNearObstacle(owner));
+		algorithm.addEntry(spotted);
+
+		AIEntry near = new AIEntry(algorithm);
+		near.addCondition(new DistanceToEnemy(owner, new ArrayList<>(Arrays.asList("300"))));
+		near.addAction(new IdleAction(owner));
+		algorithm.addEntry(near);
+
+		AIEntry idle = new AIEntry(algorithm);
+		idle.addCondition(new TrueCondition(owner));
+		idle.addAction(new IdleAction(owner));
+		algorithm.addEntry(idle);
+
+		algorithm.compile();
+		return algorithm;
+	}
+
+	/**
+	 * Decides many rounds, after warming up, and returns the bytes allocated while deciding (minus
+	 * the cost of measuring).
+	 */
+	private static long measureDecisions(State state, Player owner) {
+		for (int i = 0; i < ITERATIONS; i++) {
+			state.update(DTIME);
+			owner.rotate(45);
+			owner.decide(state);
+		}
+
+		long overhead = -allocatedBytes() + allocatedBytes();
+		long allocated = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			state.update(DTIME);
+			owner.rotate(45);
+			long before = allocatedBytes();
+			owner.decide(state);
+			allocated += allocatedBytes() - before - overhead;
+		}
+		return allocated;
+	}
+
+	/**
+	 * Once warmed up, choosing an order, its target, and switching to it, must not create garbage.
+	 */
+	@Test
+	public void testDecisionDoesNotAllocate() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = createPlayer(state, 0, 400, 400);
+		createPlayer(state, 1, 600, 420);
+		createPlayer(state, 1, 380, 200);
+		state.addObstacle(new Obstacle(state.getNextId(), new Position(500, 400), 20));
+		state.addObstacle(new Obstacle(state.getNextId(), new Position(400, 600), 20));
+		createAlgorithm(owner);
+
+		// the JIT may allocate a few bytes once, when it deoptimizes, but a single object per
+		// decision would already be hundreds of kilobytes
+		long allocated = measureDecisions(state, owner);
+		Assert.assertTrue(allocated + " bytes", allocated < MAX_ALLOCATED_BYTES);
+	}
+}
@@ -0,0 +1,187 @@
+package com.md.mechevo.game;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.projectile.Bullet;
+import com.md.mechevo.game.projectile.Projectile;
+import com.md.mechevo.game.sentry.Sentry;
+import com.md.mechevo.game.weapon.Minigun;
+
+public class SolidTest {
+	private static final int ITERATIONS = 100000;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static long allocatedBytes() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Moves a solid many times, after warming up, and returns the bytes allocated meanwhile (minus
+	 * the cost of measuring).
+	 */
+	private static long measureMoves(Solid s) {
+		for (int i = 0; i < ITERATIONS; i++) {
+			moveAround(s, i);
+		}
+
+		long overhead = -allocatedBytes() + allocatedBytes();
+		long before = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++) {
+			moveAround(s, i);
+		}
+		return allocatedBytes() - before - overhead;
+	}
+
+	private static void moveAround(Solid s, int i) {
+		s.move(i % 360, Player.MOVE_SPEED, 0.1, true);
+		s.move(i % 360, 5, false);
+		s.translate(1, -1);
+		s.rotate(15);
+		s.setXY(s.getX() % 800, s.getY() % 800);
+	}
+
+	@Test
+	public void testKinematics() {
+		Solid s = new Obstacle(0, new Position(100, 100), 10);
+
+		s.move(0, Player.MOVE_SPEED, 1, true);
+		Assert.assertEquals(150, s.getX(), 1e-9);
+		Assert.assertEquals(100, s.getY(), 1e-9);
+
+		// inverted y-axis
+		s.move(90, 20, true);
+		Assert.assertEquals(150, s.getX(), 1e-9);
+		Assert.assertEquals(80, s.getY(), 1e-9);
+
+		s.translate(-50, 20);
+		Assert.assertEquals(new Position(100, 100), s.getPosition());
+
+		s.setXY(10, 20);
+		Assert.assertEquals(new Position(10, 20), s.getPosition());
+
+		s.rotate(-30);
+		Assert.assertEquals(330, s.getAngle(), 1e-9);
+	}
+
+	/**
+	 * Moving a solid must not create garbage, both alone and inside a map.
+	 */
+	@Test
+	public void testMoveDoesNotAllocate() {
+		Solid alone = new Obstacle(0, new Position(100, 100), 10);
+		Assert.assertEquals(0, measureMoves(alone));
+
+		State state = new State(new Map(800, 800));
+		Player player = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		state.addPlayer(player);
+		Assert.assertEquals(0, measureMoves(player));
+	}
+
+	/**
+	 * Solids out of a map keep their values by themselves, without a store of their own, also
+	 * after leaving the map.
+	 */
+	@Test
+	public void testNoStoreOutOfMap() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player player = new Player(state.getNextId(), 0, new Position(400, 400), 90);
+		player.paralyse();
+		Assert.assertNull(player.getStore());
+
+		state.addPlayer(player);
+		Assert.assertSame(state.getMap().getStore(), player.getStore());
+
+		player.setXY(300, 200);
+		player.takeDamage(Player.HEALTH, 0);
+		state.update(0.1);
+		Assert.assertNull(player.getStore());
+		Assert.assertEquals(0, state.getMap().getStore().size());
+		Assert.assertEquals(new Position(300, 200), player.getPosition());
+		Assert.assertEquals(90, player.getAngle(), 0);
+		Assert.assertEquals(Player.RADIUS, player.getRadius(), 0);
+	}
+
+	/**
+	 * A sentry that does nothing, there are no concrete ones yet.
+	 */
+	private static class TestSentry extends Sentry {
+		public TestSentry(int id, Position position, Player owner) {
+			super(id, position, 20, 0, 0, owner, 10, 5);
+		}
+
+		@Override
+		public void collidesWith(State state, Player p) {}
+
+		@Override
+		public void collidesWith(State state, Projectile p) {}
+
+		@Override
+		public void collidesWith(State State, Obstacle o) {}
+
+		@Override
+		public void collidesWith(State state, Sentry s) {}
+
+		@Override
+		public void begin(State state) {}
+	}
+
+	/**
+	 * @return true if at least one of the solids does something when they collide
+	 */
+	private static boolean isUseful(Solid s1, Solid s2) {
+		return s1.reactsTo(s2) || s2.reactsTo(s1);
+	}
+
+	/**
+	 * The layer masks skip the pairs where nothing happens (sentries and obstacles with anything
+	 * else, projectiles with projectiles and with their owner), and keep the others.
+	 */
+	@Test
+	public void testCollisionMasks() {
+		Position position = new Position(100, 100);
+		Player owner = new Player(0, 0, position, 0);
+		Player enemy = new Player(1, 1, position, 0);
+		Player ally = new Player(2, 0, position, 0);
+		Sentry sentry1 = new TestSentry(3, position, owner);
+		Sentry sentry2 = new TestSentry(4, position, enemy);
+		Obstacle obstacle1 = new Obstacle(5, position, 10);
+		Obstacle obstacle2 = new Obstacle(6, position, 10);
+		Bullet bullet1 = new Bullet(7, position, 0, new Minigun(owner));
+		Bullet bullet2 = new Bullet(8, position, 0, new Minigun(enemy));
+
+		Assert.assertFalse(isUseful(sentry1, sentry2));
+		Assert.assertFalse(isUseful(obstacle1, obstacle2));
+		Assert.assertFalse(isUseful(bullet1, bullet2));
+		Assert.assertFalse(isUseful(sentry1, obstacle1));
+		Assert.assertFalse(isUseful(sentry1, bullet1));
+		Assert.assertFalse(isUseful(sentry1, enemy));
+		Assert.assertFalse(isUseful(obstacle1, enemy));
+
+		Assert.assertTrue(bullet1.reactsTo(obstacle1));
+		Assert.assertFalse(obstacle1.reactsTo(bullet1));
+		Assert.assertTrue(bullet1.reactsTo(enemy));
+		Assert.assertTrue(bullet1.reactsTo(ally));
+		Assert.assertFalse(enemy.reactsTo(bullet1));
+		Assert.assertFalse(isUseful(bullet1, owner));
+		Assert.assertTrue(bullet2.reactsTo(owner));
+
+		Assert.assertTrue(owner.reactsTo(enemy));
+		Assert.assertTrue(enemy.reactsTo(owner));
+		Assert.assertTrue(owner.reactsTo(ally));
+	}
+
+	/**
+	 * Sentries may move or count down in their update, so they only sleep if they say so.
+	 */
+	@Test
+	public void testSentriesDontSleepByDefault() {
+		Player owner = new Player(0, 0, new Position(100, 100), 0);
+		Assert.assertFalse(new TestSentry(1, new Position(200, 100), owner).canSleep());
+	}
+}
@@ -0,0 +1,180 @@
+package com.md.mechevo.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.SpatialQuery.Team;
+import com.md.mechevo.game.broadphase.SpatialHashGrid;
+
+public class SpatialQueryTest {
+	private static final int ROUNDS = 50;
+
+	private static final Class<?>[] TYPES = {Player.class, Obstacle.class, Solid.class,
+			Player.class, Player.class};
+	private static final Team[] TEAMS = {Team.ANY, Team.ANY, Team.ANY, Team.ENEMIES, Team.ALLIES};
+	private static final Player.FieldOfViewAngle[] VIEWS = {Player.FieldOfViewAngle.VIEW,
+			Player.FieldOfViewAngle.VIEW, null, null, Player.FieldOfViewAngle.FIRE};
+
+	/**
+	 * Scans all the players and obstacles, sorted by distance to the viewer and then by id.
+	 */
+	private static List<Solid> scan(State state, final Player viewer, Class<?> type, Team team,
+			Player.FieldOfViewAngle view) {
+		ArrayList<Solid> all = new ArrayList<Solid>(state.getPlayers());
+		all.addAll(state.getObstacles());
+
+		ArrayList<Solid> found = new ArrayList<>();
+		for (Solid s : all) {
+			if (s == viewer || !type.isInstance(s)) {
+				continue;
+			}
+			if (team != Team.ANY
+					&& (s instanceof Obstacle || (((Player) s).getTeamId() == viewer.getTeamId())
+							!= (team == Team.ALLIES))) {
+				continue;
+			}
+			if (view == null || viewer.isInFieldOfView(s, view)) {
+				found.add(s);
+			}
+		}
+
+		Collections.sort(found, new Comparator<Solid>() {
+			@Override
+			public int compare(Solid s1, Solid s2) {
+				int byDistance =
+						Double.compare(Geometry.distanceSquared(viewer, s1),
+								Geometry.distanceSquared(viewer, s2));
+				return (byDistance != 0) ? byDistance : Integer.compare(s1.getId(), s2.getId());
+			}
+		});
+		return found;
+	}
+
+	/**
+	 * The queries find the same solids as scanning all of them, while the players move around, also
+	 * outside of the map.
+	 */
+	@Test
+	public void testSameAsScan() {
+		Random random = new Random(42);
+		State state = new State(new Map(1600, 1200));
+		state.registerEventObserver(new EventObserver());
+		for (int i = 0; i < 30; i++) {
+			Position position = new Position(random.nextInt(1600), random.nextInt(1200));
+			Player player = new Player(state.getNextId(), i % 3, position, random.nextInt(8) * 45);
+			player.paralyse();
+			state.addPlayer(player);
+		}
+		ArrayList<Obstacle> obstacles = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Position position = new Position(random.nextInt(1600), random.nextInt(1200));
+			obstacles.add(new Obstacle(state.getNextId(), position, 5 + random.nextInt(40)));
+		}
+		state.addObstacles(obstacles);
+
+		SpatialQuery query = state.getSpatialQuery();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Player p : state.getPlayers()) {
+				p.translate(random.nextGaussian() * 100, random.nextGaussian() * 100);
+				p.rotate(random.nextInt(8) * 45);
+			}
+
+			Player viewer = state.getPlayers().get(random.nextInt(state.getPlayers().size()));
+			for (int f = 0; f < TYPES.length; f++) {
+				@SuppressWarnings({"unchecked", "rawtypes"})
+				SpatialQuery.Filter<Solid> filter =
+						new SpatialQuery.Filter(TYPES[f], TEAMS[f], VIEWS[f]);
+				List<Solid> expected = scan(state, viewer, TYPES[f], TEAMS[f], VIEWS[f]);
+
+				Assert.assertSame(expected.isEmpty() ? null : expected.get(0),
+						query.findNearest(viewer, filter));
+
+				int k = 1 + random.nextInt(8);
+				ArrayList<Solid> nearest = new ArrayList<>();
+				query.findNearest(viewer, filter, k, nearest);
+				Assert.assertEquals(expected.subList(0, Math.min(k, expected.size())), nearest);
+
+				double radius = random.nextInt(800);
+				ArrayList<Solid> expectedWithin = new ArrayList<>();
+				for (Solid s : expected) {
+					if (Geometry.isCloserThan(viewer, s, radius)) {
+						expectedWithin.add(s);
+					}
+				}
+				Collections.sort(expectedWithin, SpatialHashGrid.BY_ID);
+				ArrayList<Solid> within = new ArrayList<>();
+				query.findWithin(viewer, filter, radius, within);
+				Assert.assertEquals(expectedWithin, within);
+			}
+		}
+	}
+
+	/**
+	 * @return the player in the field of view of the viewer nearest to it, or null if none
+	 */
+	private static Player nearestInView(State state, Player viewer) {
+		Player nearest = null;
+		for (Player p : viewer.fieldOfView(state, Player.FieldOfViewAngle.VIEW)) {
+			if (nearest == null || Geometry.distanceSquared(viewer, p)
+					< Geometry.distanceSquared(viewer, nearest)) {
+				nearest = p;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * The scanners find the same nearest player as looking at the whole field of view.
+	 */
+	@Test
+	public void testSameAsFieldOfView() {
+		State state = new State(new Map(800, 800));
+		Player owner = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		state.addPlayer(owner);
+		Player near = new Player(state.getNextId(), 1, new Position(500, 420), 0);
+		state.addPlayer(near);
+		state.addPlayer(new Player(state.getNextId(), 1, new Position(100, 400), 0));
+
+		SpatialQuery query = state.getSpatialQuery();
+		Assert.assertSame(nearestInView(state, owner),
+				query.findNearest(owner, SpatialQuery.Filter.PLAYERS_IN_VIEW));
+		Assert.assertSame(near, query.findNearest(owner, SpatialQuery.Filter.PLAYERS_IN_VIEW));
+
+		owner.rotate(180);
+		Assert.assertSame(nearestInView(state, owner),
+				query.findNearest(owner, SpatialQuery.Filter.PLAYERS_IN_VIEW));
+		Assert.assertNotSame(near, query.findNearest(owner, SpatialQuery.Filter.PLAYERS_IN_VIEW));
+	}
+
+	/**
+	 * The solids in view are found the same when many of them share a cell, since a cell is tested
+	 * against the field of view all at once.
+	 */
+	@Test
+	public void testCrowdedCellSameAsScan() {
+		Random random = new Random(7);
+		State state = new State(new Map(800, 800));
+		for (int i = 0; i < 60; i++) {
+			Position position = new Position(380 + random.nextInt(40), 380 + random.nextInt(40));
+			Player player = new Player(state.getNextId(), i % 2, position, random.nextInt(8) * 45);
+			player.paralyse();
+			state.addPlayer(player);
+		}
+
+		SpatialQuery query = state.getSpatialQuery();
+		for (Player viewer : state.getPlayers()) {
+			List<Solid> expected =
+					scan(state, viewer, Player.class, Team.ANY, Player.FieldOfViewAngle.VIEW);
+			ArrayList<Solid> nearest = new ArrayList<>();
+			query.findNearest(viewer, SpatialQuery.Filter.PLAYERS_IN_VIEW, expected.size() + 1,
+					nearest);
+			Assert.assertEquals(expected, nearest);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.md.mechevo.game;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.action.Action;
+import com.md.mechevo.game.ai.AIAlgorithm;
+import com.md.mechevo.game.ai.AIEntry;
+import com.md.mechevo.game.condition.Condition;
+
+public class StateTest {
+	private static final double DTIME = 0.1;
+
+	/**
+	 * Counts how many times it is checked, in all the players.
+	 */
+	private static class CountingCondition extends Condition {
+		private final int[] checks;
+
+		CountingCondition(Player owner, int[] checks) {
+			super(owner);
+			this.checks = checks;
+		}
+
+		@Override
+		public boolean check(State state) {
+			this.checks[0] += 1;
+			return true;
+		}
+
+		@Override
+		public Player getPreferredPlayer(State state) {
+			return null;
+		}
+	}
+
+	/**
+	 * Never finishes, so the player only changes its order when it decides to.
+	 */
+	private static class WaitAction extends Action {
+		WaitAction(Player owner) {
+			super(owner, true);
+		}
+
+		@Override
+		public boolean hasFinished() {
+			return false;
+		}
+
+		@Override
+		public boolean check(State state) {
+			return true;
+		}
+
+		@Override
+		public void begin(State state) {}
+
+		@Override
+		public void update(State state, double dtime) {}
+
+		@Override
+		public void end(State state) {}
+	}
+
+	/**
+	 * Paralysed players don't need an AI to be updated.
+	 */
+	private static Player createPlayer(State state, int teamId, double x, double y) {
+		Player player = new Player(state.getNextId(), teamId, new Position(x, y), 0);
+		player.paralyse();
+		state.addPlayer(player);
+		return player;
+	}
+
+	/**
+	 * A free-for-all only finishes when a single team is left, however many teams there are.
+	 */
+	@Test
+	public void testWinnerWithManyTeams() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player p0 = createPlayer(state, 0, 100, 100);
+		Player p1 = createPlayer(state, 1, 300, 100);
+		Player p2a = createPlayer(state, 2, 500, 100);
+		Player p2b = createPlayer(state, 2, 700, 100);
+
+		Assert.assertEquals(3, state.getNumTeams());
+		Assert.assertFalse(state.gameHasFinished());
+
+		p0.takeDamage(Player.HEALTH);
+		p2a.takeDamage(Player.HEALTH);
+		state.update(DTIME);
+		Assert.assertFalse(state.gameHasFinished());
+		Assert.assertEquals(State.INVALID_WINNER_TEAM, state.getWinnerTeam());
+
+		p1.takeDamage(Player.HEALTH);
+		state.update(DTIME);
+		Assert.assertTrue(state.gameHasFinished());
+		Assert.assertEquals(p2b.getTeamId(), state.getWinnerTeam());
+	}
+
+	/**
+	 * With a decision interval, each player decides once every interval rounds, in a round of its
+	 * own, except at the beginning when it has no order yet.
+	 */
+	@Test
+	public void testStaggeredDecisions() {
+		final int interval = 3;
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		state.setDecisionInterval(interval);
+
+		int[] checks = new int[1];
+		for (int i = 0; i < interval; i++) {
+			Position position = new Position(100 + 200 * i, 400);
+			Player player = new Player(state.getNextId(), i % 2, position, 0);
+			AIAlgorithm algorithm = new AIAlgorithm(player);
+			AIEntry entry = new AIEntry(algorithm);
+			entry.addCondition(new CountingCondition(player, checks));
+			entry.addAction(new WaitAction(player));
+			algorithm.addEntry(entry);
+			algorithm.compile();
+			player.setAlgorithm(algorithm);
+			state.addPlayer(player);
+		}
+
+		state.update(DTIME);
+		Assert.assertEquals(interval, checks[0]);
+		for (int round = 1; round < 4 * interval; round++) {
+			state.update(DTIME);
+			Assert.assertEquals(interval + round, checks[0]);
+		}
+	}
+}
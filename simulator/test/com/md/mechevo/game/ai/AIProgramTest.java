@@ -0,0 +1,162 @@
+package com.md.mechevo.game.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.EventObserver;
+import com.md.mechevo.game.Map;
+import com.md.mechevo.game.Player;
+import com.md.mechevo.game.Position;
+import com.md.mechevo.game.State;
+import com.md.mechevo.game.action.Action;
+import com.md.mechevo.game.action.Dash;
+import com.md.mechevo.game.action.IdleAction;
+import com.md.mechevo.game.action.MoveInLine;
+import com.md.mechevo.game.action.Turn;
+import com.md.mechevo.game.condition.Condition;
+import com.md.mechevo.game.condition.DistanceToEnemy;
+import com.md.mechevo.game.condition.EnemySpotted;
+import com.md.mechevo.game.condition.TrueCondition;
+
+public class AIProgramTest {
+	/**
+	 * Counts how many times it is checked, and says it only depends on where the players are.
+	 */
+	private static class WorldCondition extends Condition {
+		private int checks;
+
+		WorldCondition(Player owner) {
+			super(owner);
+		}
+
+		@Override
+		public boolean check(State state) {
+			this.checks += 1;
+			return false;
+		}
+
+		@Override
+		public Player getPreferredPlayer(State state) {
+			return null;
+		}
+
+		@Override
+		public int getDependencies() {
+			return AIDependency.WORLD.mask();
+		}
+	}
+
+	private static ArrayList<String> params(String... values) {
+		return new ArrayList<>(Arrays.asList(values));
+	}
+
+	private static void addEntry(AIAlgorithm algorithm, Condition[] conditions, Action[] actions) {
+		AIEntry entry = new AIEntry(algorithm);
+		for (Condition cond : conditions) {
+			entry.addCondition(cond);
+		}
+		for (Action action : actions) {
+			entry.addAction(action);
+		}
+		algorithm.addEntry(entry);
+	}
+
+	/**
+	 * The program chooses the same entries and targets as the entries themselves, and leaves out
+	 * the entries after one that is always chosen.
+	 */
+	@Test
+	public void testSameChoicesAsEntries() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		Player enemy = new Player(state.getNextId(), 1, new Position(500, 400), 0);
+		// paralysed players don't run their own AI when the state is updated
+		owner.paralyse();
+		enemy.paralyse();
+		state.addPlayer(owner);
+		state.addPlayer(enemy);
+
+		AIAlgorithm algorithm = new AIAlgorithm(owner);
+		addEntry(algorithm, new Condition[] {new EnemySpotted(owner, params()),
+				new DistanceToEnemy(owner, params("150"))}, new Action[] {new Dash(owner,
+				params("LEFT"))});
+		addEntry(algorithm, new Condition[] {new EnemySpotted(owner, params())},
+				new Action[] {new MoveInLine(owner, params("SPRINT", "FORWARD", "100"))});
+		addEntry(algorithm, new Condition[] {new TrueCondition(owner)}, new Action[] {
+				new MoveInLine(owner, params("SPRINT", "BACKWARD", "100")),
+				new Turn(owner, params("LEFT", "90"))});
+		addEntry(algorithm, new Condition[] {new TrueCondition(owner)},
+				new Action[] {new IdleAction(owner)});
+
+		double[][] enemyPositions = { {500, 400}, {700, 400}, {400, 700}, {450, 420}};
+		for (double[] position : enemyPositions) {
+			for (int heat = 0; heat <= Player.getMaxHeat(); heat += Player.getMaxHeat() / 2) {
+				enemy.setXY(position[0], position[1]);
+				owner.increaseHeat(heat - owner.getHeat());
+				state.update(0);
+
+				AISuggestion expected = algorithm.calculateBestAction(state);
+				AISuggestion actual = AIProgram.compile(algorithm.getEntries()).run(state,
+						new AISuggestion());
+
+				Assert.assertSame(expected.getAiEntry(), actual.getAiEntry());
+				Assert.assertSame(expected.getPreferredTarget(), actual.getPreferredTarget());
+			}
+		}
+
+		algorithm.compile();
+		Assert.assertEquals(algorithm.getEntries().subList(0, 3), algorithm.getProgram()
+				.getEntries());
+	}
+
+	/**
+	 * The choice is only made again when something it depends on changed.
+	 */
+	@Test
+	public void testDecisionReusedUntilDependencyChanges() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		Player enemy = new Player(state.getNextId(), 1, new Position(500, 400), 0);
+		owner.paralyse();
+		enemy.paralyse();
+		state.addPlayer(owner);
+		state.addPlayer(enemy);
+
+		AIAlgorithm algorithm = new AIAlgorithm(owner);
+		owner.setAlgorithm(algorithm);
+		WorldCondition condition = new WorldCondition(owner);
+		addEntry(algorithm, new Condition[] {condition}, new Action[] {new IdleAction(owner)});
+		addEntry(algorithm, new Condition[] {new TrueCondition(owner)},
+				new Action[] {new Dash(owner, params("LEFT"))});
+		algorithm.compile();
+
+		// the players were added in the first round, which is seen until the next one
+		for (int i = 0; i < 3; i++) {
+			state.update(0.1);
+			Assert.assertSame(algorithm.getEntries().get(1), algorithm.calculateBestAction(state)
+					.getAiEntry());
+		}
+		Assert.assertEquals(1, condition.checks);
+
+		// a move made in the round of a choice changes the line of sight of the next round too
+		enemy.setXY(600, 400);
+		algorithm.calculateBestAction(state);
+		Assert.assertEquals(2, condition.checks);
+		state.update(0.1);
+		algorithm.calculateBestAction(state);
+		Assert.assertEquals(3, condition.checks);
+		state.update(0.1);
+		algorithm.calculateBestAction(state);
+		Assert.assertEquals(3, condition.checks);
+
+		// the choice of the second entry depends on the heat
+		owner.increaseHeat(Player.getMaxHeat());
+		Assert.assertNull(algorithm.calculateBestAction(state));
+		Assert.assertEquals(4, condition.checks);
+	}
+}
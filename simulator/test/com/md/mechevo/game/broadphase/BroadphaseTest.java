@@ -0,0 +1,100 @@
+package com.md.mechevo.game.broadphase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.Obstacle;
+import com.md.mechevo.game.Position;
+import com.md.mechevo.game.Solid;
+
+public class BroadphaseTest {
+	private static final int ROUNDS = 40;
+	private static final int SOLIDS = 60;
+
+	/**
+	 * @return true if the bounding boxes of the paths of the solids during the round overlap
+	 */
+	private static boolean overlap(Solid s1, Solid s2) {
+		double r1 = s1.getRadius();
+		double r2 = s2.getRadius();
+		return Math.min(s1.getX(), s1.getPreviousX()) - r1 <= Math.max(s2.getX(),
+				s2.getPreviousX()) + r2
+				&& Math.min(s2.getX(), s2.getPreviousX()) - r2 <= Math.max(s1.getX(),
+						s1.getPreviousX()) + r1
+				&& Math.min(s1.getY(), s1.getPreviousY()) - r1 <= Math.max(s2.getY(),
+						s2.getPreviousY()) + r2
+				&& Math.min(s2.getY(), s2.getPreviousY()) - r2 <= Math.max(s1.getY(),
+						s1.getPreviousY()) + r1;
+	}
+
+	private static Solid createSolid(Random random, int id) {
+		Position position = new Position(random.nextInt(800), random.nextInt(800));
+		return new Obstacle(id, position, 5 + random.nextInt(40));
+	}
+
+	/**
+	 * Sweep and prune keeps its axis sorted between rounds, and the hash grid keeps each solid in
+	 * its cells, while the solids move, leave and join. Both must find all the pairs the brute
+	 * force reference finds with overlapping bounding boxes: sweep and prune exactly those, the
+	 * grid maybe a few more. Candidates are always sorted by id, without duplicates.
+	 */
+	@Test
+	public void testSameCandidatesAsBruteForce() {
+		Random random = new Random(3);
+		BruteForceBroadphase reference = new BruteForceBroadphase();
+		SweepAndPrune sweep = new SweepAndPrune();
+		SpatialHashGrid grid = new SpatialHashGrid();
+
+		ArrayList<Solid> solids = new ArrayList<>();
+		int nextId = 0;
+		for (; nextId < SOLIDS; nextId++) {
+			solids.add(createSolid(random, nextId));
+		}
+
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Solid s : solids) {
+				s.setPreviousPosition(s.getPosition());
+				// mostly small steps, like the mechs, and a few long jumps
+				double step = (random.nextInt(10) == 0) ? 300 : 20;
+				s.translate((random.nextDouble() - 0.5) * step, (random.nextDouble() - 0.5) * step);
+			}
+			for (int i = 0; i < 2; i++) {
+				Solid removed = solids.remove(random.nextInt(solids.size()));
+				sweep.remove(removed);
+				grid.remove(removed);
+				solids.add(createSolid(random, nextId));
+				nextId += 1;
+			}
+
+			reference.update(new ArrayList<>(solids));
+			sweep.update(solids);
+			grid.update(solids);
+
+			for (Solid s : solids) {
+				ArrayList<Solid> expected = new ArrayList<>();
+				reference.findCandidates(s, expected);
+				for (int i = expected.size() - 1; i >= 0; i--) {
+					if (!overlap(s, expected.get(i))) {
+						expected.remove(i);
+					}
+				}
+
+				List<Solid> found = new ArrayList<>();
+				sweep.findCandidates(s, found);
+				Assert.assertEquals("round " + round, expected, found);
+
+				found.clear();
+				grid.findCandidates(s, found);
+				Assert.assertTrue("round " + round, found.containsAll(expected));
+				for (int i = 0; i < found.size(); i++) {
+					Assert.assertTrue(solids.contains(found.get(i)));
+					Assert.assertTrue(i == 0 || found.get(i - 1).getId() < found.get(i).getId());
+				}
+			}
+		}
+	}
+}
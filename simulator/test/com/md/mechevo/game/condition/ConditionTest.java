@@ -0,0 +1,137 @@
+package com.md.mechevo.game.condition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.md.mechevo.game.EventObserver;
+import com.md.mechevo.game.Map;
+import com.md.mechevo.game.Player;
+import com.md.mechevo.game.Position;
+import com.md.mechevo.game.State;
+
+public class ConditionTest {
+	/**
+	 * Counts how many times it is checked.
+	 */
+	private static class CountingCondition extends Condition {
+		private final boolean sideEffects;
+		private int checks;
+		private int preferredAsked;
+
+		CountingCondition(Player owner, boolean sideEffects) {
+			super(owner);
+			this.sideEffects = sideEffects;
+		}
+
+		@Override
+		public boolean check(State state) {
+			this.checks += 1;
+			return true;
+		}
+
+		@Override
+		public Player getPreferredPlayer(State state) {
+			this.preferredAsked += 1;
+			return this.getOwner();
+		}
+
+		@Override
+		public boolean hasSideEffects() {
+			return sideEffects;
+		}
+	}
+
+	/**
+	 * Conditions are checked once per round, unless they have side effects.
+	 */
+	@Test
+	public void testMemoizedPerRound() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		owner.paralyse();
+		state.addPlayer(owner);
+
+		CountingCondition memoized = new CountingCondition(owner, false);
+		CountingCondition notMemoized = new CountingCondition(owner, true);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(memoized.evaluate(state));
+			Assert.assertSame(owner, memoized.evaluatePreferredPlayer(state));
+			Assert.assertTrue(notMemoized.evaluate(state));
+			Assert.assertSame(owner, notMemoized.evaluatePreferredPlayer(state));
+		}
+		Assert.assertEquals(1, memoized.checks);
+		Assert.assertEquals(1, memoized.preferredAsked);
+		Assert.assertEquals(3, notMemoized.checks);
+		Assert.assertEquals(3, notMemoized.preferredAsked);
+
+		state.update(0.1);
+		memoized.evaluate(state);
+		memoized.evaluatePreferredPlayer(state);
+		Assert.assertEquals(2, memoized.checks);
+		Assert.assertEquals(2, memoized.preferredAsked);
+	}
+
+	/**
+	 * Receiving damage forgets the hit, so it can't be memoized.
+	 */
+	@Test
+	public void testReceivedDamageHasSideEffects() {
+		Player owner = new Player(0, 0, new Position(400, 400), 0);
+		ArrayList<String> params = new ArrayList<>(Arrays.asList("BACK"));
+		Assert.assertTrue(new ReceivedDamage(owner, params).hasSideEffects());
+		Assert.assertFalse(new TrueCondition(owner).hasSideEffects());
+	}
+
+	private static ArrayList<String> params(String... params) {
+		return new ArrayList<>(Arrays.asList(params));
+	}
+
+	/**
+	 * Params written differently but meaning the same are parsed the same, so such conditions can
+	 * be shared.
+	 */
+	@Test
+	public void testParsedParams() {
+		Player owner = new Player(0, 0, new Position(400, 400), 0);
+		Assert.assertEquals(new DistanceToEnemy(owner, params("5")).getParsedParam(),
+				new DistanceToEnemy(owner, params("5.0")).getParsedParam());
+		Assert.assertNotEquals(new DistanceToEnemy(owner, params("5")).getParsedParam(),
+				new DistanceToEnemy(owner, params("50")).getParsedParam());
+		Assert.assertEquals(new ReceivedDamage(owner, params("back")).getParsedParam(),
+				new ReceivedDamage(owner, params("BACK")).getParsedParam());
+		Assert.assertEquals(new WeaponReady(owner, params("LEFT")).getParsedParam(),
+				new WeaponReady(owner, params("LEFT")).getParsedParam());
+		Assert.assertEquals(new EnemySpotted(owner, params()).getParsedParam(),
+				new TrueCondition(owner).getParsedParam());
+	}
+
+	/**
+	 * Conditions looking for the nearest enemy keep their own last target, but look around only
+	 * once per round for all of them.
+	 */
+	@Test
+	public void testNearestEnemySharedPerRound() {
+		State state = new State(new Map(800, 800));
+		state.registerEventObserver(new EventObserver());
+		Player owner = new Player(state.getNextId(), 0, new Position(400, 400), 0);
+		owner.paralyse();
+		state.addPlayer(owner);
+		Player enemy = new Player(state.getNextId(), 1, new Position(500, 400), 0);
+		enemy.paralyse();
+		state.addPlayer(enemy);
+
+		EnemySpotted spotted = new EnemySpotted(owner, params());
+		DistanceToEnemy distance = new DistanceToEnemy(owner, params("150"));
+		Assert.assertTrue(spotted.evaluate(state));
+		Assert.assertTrue(owner.getPerception().isUpToDate(state));
+		// the enemy is behind the owner now, but the conditions see what it saw this round
+		enemy.setXY(350, 400);
+		Assert.assertTrue(distance.evaluate(state));
+		Assert.assertSame(spotted.evaluatePreferredPlayer(state),
+				distance.evaluatePreferredPlayer(state));
+	}
+}
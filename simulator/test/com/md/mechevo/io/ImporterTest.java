@@ -1,10 +1,14 @@
 package com.md.mechevo.io;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.md.mechevo.game.Map;
 import com.md.mechevo.game.State;
+import com.md.mechevo.game.ai.AIEntry;
+import com.md.mechevo.game.condition.Condition;
 
 public class ImporterTest {
 
@@ -39,13 +43,55 @@ public class ImporterTest {
 		Assert.assertTrue(map.getWidth() == 800);
 		Assert.assertTrue(map.getHeight() == 800);
 
-		// 1 Player, 1 Obstacle
-		final int NUM_ELEMENTS = 2;
-		Assert.assertTrue(map.getElements().size() == NUM_ELEMENTS);
+		// 1 Player, 1 Obstacle (obstacles are kept apart since they never move)
+		Assert.assertTrue(map.getElements().size() == 1);
+		Assert.assertTrue(map.getObstacles().size() == 1);
 
 		// TODO to finish test
 	}
 
+	/**
+	 * Conditions repeated across the entries of a player are shared, unless they have side effects
+	 * or remember something between checks.
+	 */
+	@Test
+	public void testSharedConditions() {
+		final String JSON =
+				"{ \"map\": { \"width\": 800, \"height\": 800 }, \"obstacles\": [],"
+						+ "  \"players\": [ {"
+						+ "    \"teamId\": 0, \"x\": 100, \"y\": 200,"
+						+ "    \"weapons\": [ \"Minigun\", \"Minigun\", \"Minigun\" ],"
+						+ "    \"angle\": 0, \"algorithm\": ["
+						+ "      { \"conditions\": ["
+						+ "          { \"name\": \"WeaponReady\", \"param\": [\"LEFT\"] },"
+						+ "          { \"name\": \"ReceivedDamage\", \"param\": [\"BACK\"] },"
+						+ "          { \"name\": \"EnemySpotted\", \"param\": [] },"
+						+ "          { \"name\": \"DistanceToEnemy\", \"param\": [\"100\"] } ],"
+						+ "        \"actions\": ["
+						+ "          { \"name\": \"MoveNearObstacle\", \"param\": [] } ]"
+						+ "      },"
+						+ "      { \"conditions\": ["
+						+ "          { \"name\": \"WeaponReady\", \"param\": [\"LEFT\"] },"
+						+ "          { \"name\": \"ReceivedDamage\", \"param\": [\"BACK\"] },"
+						+ "          { \"name\": \"EnemySpotted\", \"param\": [] },"
+						+ "          { \"name\": \"DistanceToEnemy\", \"param\": [\"100\"] },"
+						+ "          { \"name\": \"WeaponReady\", \"param\": [\"RIGHT\"] } ],"
+						+ "        \"actions\": [ { \"name\": \"FaceOpponent\", \"param\": [] } ] }"
+						+ "    ] } ] }";
+		State state = Importer.createInitialState(JSON);
+
+		List<AIEntry> entries = state.getPlayers().get(0).getAlgorithm().getEntries();
+		List<Condition> first = entries.get(0).getConditions();
+		List<Condition> second = entries.get(1).getConditions();
+		Assert.assertSame(first.get(0), second.get(0));
+		Assert.assertNotSame(first.get(0), second.get(4));
+		// side effects
+		Assert.assertNotSame(first.get(1), second.get(1));
+		// remembered targets
+		Assert.assertNotSame(first.get(2), second.get(2));
+		Assert.assertNotSame(first.get(3), second.get(3));
+	}
+
 	/**
 	 * Verifies error handling.
 	 */